@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.benchmark;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.first;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Trampoline.complete;
+import static io.parsingdata.metal.Trampoline.intermediate;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.Selection.NO_LIMIT;
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.encoding.Encoding.DEFAULT_ENCODING;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.parsingdata.metal.Trampoline;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.data.ParseValueCache;
+import io.parsingdata.metal.data.Selection;
+import io.parsingdata.metal.expression.value.CoreValue;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Microbenchmarks of the data structures and operations on the parse loop's
+ * hot path. Every benchmark operates on <code>size</code> values, spread
+ * over <code>names</code> distinct names.
+ * <p>
+ * Dividing the result of <code>parseValueCacheAdd</code> by
+ * <code>size</code> gives the cost per added value, which should remain
+ * flat as the number of distinct <code>names</code> grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoreBenchmark {
+
+    private static final String SCOPE = "root.";
+    private static final Token DEFINITION = def("value", con(1));
+
+    @Param({ "16", "1024", "16384" })
+    public int size;
+
+    @Param({ "16", "1024", "4096" })
+    public int names;
+
+    private ParseValue[] values;
+    private ParseState parseState;
+    private String searchName;
+    private ValueExpression nameRef;
+    private ValueExpression lastRef;
+    private ValueExpression firstRef;
+    private Value numericValue;
+
+    @Setup
+    public void setup() {
+        values = new ParseValue[size];
+        ParseState state = createFromByteStream(Inputs.stream(new byte[0]));
+        for (int i = 0; i < size; i++) {
+            values[i] = new ParseValue(SCOPE + "value" + (i % names), DEFINITION, createFromBytes(new byte[] { (byte) i, (byte) (i >> 8) }), DEFAULT_ENCODING);
+            state = state.add(values[i]);
+        }
+        parseState = state;
+        searchName = SCOPE + "value" + (names / 2);
+        nameRef = ref("value" + (names / 2));
+        lastRef = last(ref("value" + (names / 2)));
+        firstRef = first(ref("value" + (names / 2)));
+        numericValue = new CoreValue(createFromBytes(new byte[] { 0x12, 0x34, 0x56, 0x78 }), DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public ImmutableList<ParseValue> immutableListAdd() {
+        ImmutableList<ParseValue> list = new ImmutableList<>();
+        for (final ParseValue value : values) {
+            list = list.add(value);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public ParseValueCache parseValueCacheAdd() {
+        ParseValueCache cache = new ParseValueCache();
+        for (final ParseValue value : values) {
+            cache = cache.add(value);
+        }
+        return cache;
+    }
+
+    @Benchmark
+    public Optional<ImmutableList<Value>> parseValueCacheFind() {
+        return parseState.cache.find(searchName, NO_LIMIT);
+    }
+
+    @Benchmark
+    public Optional<ImmutableList<Value>> parseValueCacheFindLast() {
+        return parseState.cache.find(searchName, 1);
+    }
+
+    @Benchmark
+    public ImmutableList<ParseValue> selectionGetAllValues() {
+        return Selection.getAllValues(parseState.order, value -> value.matches(searchName));
+    }
+
+    @Benchmark
+    public ImmutableList<Value> refEval() {
+        return nameRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public ImmutableList<Value> lastRefEval() {
+        return lastRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public ImmutableList<Value> firstRefEval() {
+        return firstRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public Integer trampolineComputeResult() {
+        return countDown(size, 0).computeResult();
+    }
+
+    private static Trampoline<Integer> countDown(final int remaining, final int result) {
+        if (remaining == 0) {
+            return complete(() -> result);
+        }
+        return intermediate(() -> countDown(remaining - 1, result + 1));
+    }
+
+    @Benchmark
+    public void coreValueAsNumeric(final Blackhole blackhole) {
+        blackhole.consume(numericValue.asNumeric());
+        blackhole.consume(numericValue.asNumeric());
+    }
+
+    @Benchmark
+    public void coreValueAsLong(final Blackhole blackhole) {
+        blackhole.consume(numericValue.asLong());
+        blackhole.consume(numericValue.asLong());
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.benchmark;
+
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.encoding.Encoding.DEFAULT_ENCODING;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Parses generated inputs of increasing size with the PNG, ZIP and JPEG
+ * format descriptions.
+ * <p>
+ * Throughput in MB/s is reported as the <code>megabytes</code> secondary
+ * result. Run with <code>-prof gc</code> to obtain the allocation per parse
+ * (<code>gc.alloc.rate.norm</code>). Dividing it by <code>size</code> gives
+ * the allocation per byte parsed. Comparing the results for each
+ * <code>size</code> shows how parsing scales with the size of the input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FormatBenchmark {
+
+    public enum Format {
+        PNG(io.parsingdata.metal.format.PNG.FORMAT, Inputs::png),
+        ZIP(io.parsingdata.metal.format.ZIP.FORMAT, Inputs::zip),
+        JPEG(io.parsingdata.metal.format.JPEG.FORMAT, Inputs::jpeg);
+
+        final Token token;
+        final IntFunction<byte[]> generator;
+
+        Format(final Token token, final IntFunction<byte[]> generator) {
+            this.token = token;
+            this.generator = generator;
+        }
+    }
+
+    @Param({ "PNG", "ZIP", "JPEG" })
+    public Format format;
+
+    @Param({ "4096", "65536", "1048576" })
+    public int size;
+
+    private byte[] input;
+
+    @Setup
+    public void setup() {
+        input = format.generator.apply(size);
+        if (parseInput().isEmpty()) {
+            throw new IllegalStateException("Generated " + format + " input of size " + size + " does not parse.");
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+
+    }
+
+    @Benchmark
+    public Optional<ParseState> parse(final Counters counters) {
+        counters.megabytes += input.length / 1_000_000d;
+        return parseInput();
+    }
+
+    private Optional<ParseState> parseInput() {
+        return format.token.parse(new Environment(createFromByteStream(Inputs.stream(input)), DEFAULT_ENCODING));
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.benchmark;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import io.parsingdata.metal.data.ByteStream;
+
+/**
+ * Generates synthetic inputs for the format benchmarks. All inputs are
+ * created from a fixed seed, so every run parses the same data.
+ */
+public final class Inputs {
+
+    private static final long SEED = 0x6d6574616cL;
+    private static final int PNG_CHUNK_SIZE = 8192;
+    private static final int ZIP_ENTRY_SIZE = 4096;
+
+    private Inputs() {}
+
+    /**
+     * A PNG of at least <code>size</code> bytes: a header, an IHDR chunk,
+     * IDAT chunks of random data with valid checksums and an IEND chunk.
+     */
+    public static byte[] png(final int size) {
+        final Random random = new Random(SEED);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size + PNG_CHUNK_SIZE);
+        out.writeBytes(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0d, 0x0a, 0x1a, 0x0a });
+        pngChunk(out, "IHDR", new byte[] { 0, 0, 1, 0, 0, 0, 1, 0, 8, 2, 0, 0, 0 });
+        while (out.size() < size) {
+            final byte[] data = new byte[PNG_CHUNK_SIZE];
+            random.nextBytes(data);
+            pngChunk(out, "IDAT", data);
+        }
+        pngChunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    private static void pngChunk(final ByteArrayOutputStream out, final String type, final byte[] data) {
+        final CRC32 crc = new CRC32();
+        crc.update(type.getBytes(US_ASCII));
+        crc.update(data);
+        writeInt(out, data.length);
+        out.writeBytes(type.getBytes(US_ASCII));
+        out.writeBytes(data);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    private static void writeInt(final ByteArrayOutputStream out, final int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * A ZIP archive of at least <code>size</code> bytes, consisting of stored
+     * entries of random data.
+     */
+    public static byte[] zip(final int size) {
+        final Random random = new Random(SEED);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size + ZIP_ENTRY_SIZE);
+        try (final ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int entry = 0; out.size() < size; entry++) {
+                final byte[] data = new byte[ZIP_ENTRY_SIZE];
+                random.nextBytes(data);
+                final CRC32 crc = new CRC32();
+                crc.update(data);
+                final ZipEntry zipEntry = new ZipEntry("entry" + entry);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(data.length);
+                zipEntry.setCompressedSize(data.length);
+                zipEntry.setCrc(crc.getValue());
+                zip.putNextEntry(zipEntry);
+                zip.write(data);
+                zip.closeEntry();
+                zip.flush();
+            }
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A JPEG of at least <code>size</code> bytes: a start of image marker, an
+     * APP0 segment, a scan segment with random entropy-coded data (including
+     * escaped 0xff bytes and restart markers) and an end of image marker.
+     */
+    public static byte[] jpeg(final int size) {
+        final Random random = new Random(SEED);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size + 32);
+        out.writeBytes(new byte[] { (byte) 0xff, (byte) 0xd8 });
+        out.writeBytes(new byte[] { (byte) 0xff, (byte) 0xe0, 0x00, 0x10, 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0 });
+        out.writeBytes(new byte[] { (byte) 0xff, (byte) 0xda, 0x00, 0x0c, 3, 1, 0, 2, 0x11, 3, 0x11, 0, 0x3f, 0 });
+        while (out.size() < size) {
+            final int value = random.nextInt(256);
+            if (value == 0xff) {
+                out.write(0xff);
+                out.write(random.nextInt(64) == 0 ? 0xd0 + random.nextInt(8) : 0x00);
+            } else {
+                out.write(value);
+            }
+        }
+        out.writeBytes(new byte[] { (byte) 0xff, (byte) 0xd9 });
+        return out.toByteArray();
+    }
+
+    public static ByteStream stream(final byte[] data) {
+        return new ByteStream() {
+            @Override
+            public byte[] read(final BigInteger offset, final int length) {
+                final byte[] result = new byte[length];
+                System.arraycopy(data, offset.intValueExact(), result, 0, length);
+                return result;
+            }
+
+            @Override
+            public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+                return offset.add(length).compareTo(BigInteger.valueOf(data.length)) <= 0;
+            }
+        };
+    }
+
+}
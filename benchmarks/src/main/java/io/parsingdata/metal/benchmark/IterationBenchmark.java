@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.benchmark;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Trampoline.complete;
+import static io.parsingdata.metal.Trampoline.intermediate;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.encoding.Encoding.DEFAULT_ENCODING;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.parsingdata.metal.Trampoline;
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.token.CycleToken;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Compares the loop-based iteration of {@link io.parsingdata.metal.token.Rep}
+ * with an equivalent token that iterates using a {@link Trampoline}, as the
+ * library did before. Both parse <code>size</code> single byte fields.
+ * <p>
+ * Run with <code>-prof gc</code> and divide <code>gc.alloc.rate.norm</code>
+ * by <code>size</code> to compare the bytes allocated per parsed field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IterationBenchmark {
+
+    private static final Token FIELD = def("field", con(1));
+    private static final Token LOOP = rep(FIELD);
+    private static final Token TRAMPOLINE = new TrampolinedRep(FIELD);
+
+    @Param({ "1024", "65536" })
+    public int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+    }
+
+    @Benchmark
+    public Optional<ParseState> loop() {
+        return LOOP.parse(environment());
+    }
+
+    @Benchmark
+    public Optional<ParseState> trampoline() {
+        return TRAMPOLINE.parse(environment());
+    }
+
+    private Environment environment() {
+        return new Environment(createFromByteStream(Inputs.stream(data)), DEFAULT_ENCODING);
+    }
+
+    private static final class TrampolinedRep extends CycleToken {
+
+        private final Token token;
+
+        TrampolinedRep(final Token token) {
+            super("", DEFAULT_ENCODING);
+            this.token = token;
+        }
+
+        @Override
+        protected Optional<ParseState> parseImpl(final Environment environment) {
+            return iterate(environment.addBranch(this)).computeResult();
+        }
+
+        private Trampoline<Optional<ParseState>> iterate(final Environment environment) {
+            return token
+                .parse(environment)
+                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState.iterate()))))
+                .orElseGet(() -> complete(() -> Optional.of(environment.parseState.closeBranch(this))));
+        }
+
+        @Override
+        public boolean isScopeDelimiter() {
+            return true;
+        }
+
+        @Override
+        public boolean isIterable() {
+            return true;
+        }
+
+    }
+
+}
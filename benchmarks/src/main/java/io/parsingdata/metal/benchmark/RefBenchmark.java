@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.benchmark;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.encoding.Encoding.DEFAULT_ENCODING;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Measures the graph walk of {@link io.parsingdata.metal.expression.value.reference.Ref}
+ * on a parse state of <code>size</code> values without a cache, so every
+ * evaluation visits all values. Half of the values match the references.
+ * <p>
+ * Run with <code>-prof gc</code> and divide <code>gc.alloc.rate.norm</code>
+ * by <code>size</code> to see the bytes allocated per visited value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RefBenchmark {
+
+    private static final String SCOPE = "root.";
+    private static final Token MATCHING = def("value", con(1));
+    private static final Token OTHER = def("other", con(1));
+
+    @Param({ "1048576" })
+    public int size;
+
+    private ParseState parseState;
+    private ValueExpression nameRef;
+    private ValueExpression namesRef;
+    private ValueExpression definitionRef;
+
+    @Setup
+    public void setup() {
+        ParseState state = createFromByteStream(Inputs.stream(new byte[0]));
+        for (int i = 0; i < size; i++) {
+            final Token definition = i % 2 == 0 ? MATCHING : OTHER;
+            state = state.add(new ParseValue(SCOPE + definition.name, definition, createFromBytes(new byte[] { (byte) i }), DEFAULT_ENCODING));
+        }
+        parseState = state.withOrder(state.order);
+        nameRef = ref("value");
+        namesRef = ref("first", "second", "value");
+        definitionRef = ref(MATCHING);
+    }
+
+    @Benchmark
+    public ImmutableList<Value> nameRefEval() {
+        return nameRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public ImmutableList<Value> namesRefEval() {
+        return namesRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+    @Benchmark
+    public ImmutableList<Value> definitionRefEval() {
+        return definitionRef.eval(parseState, DEFAULT_ENCODING);
+    }
+
+}
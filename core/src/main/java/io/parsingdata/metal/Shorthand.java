@@ -81,11 +81,16 @@ import io.parsingdata.metal.expression.value.reference.Self;
 import io.parsingdata.metal.token.Cho;
 import io.parsingdata.metal.token.Def;
 import io.parsingdata.metal.token.DefUntil;
+import io.parsingdata.metal.token.ParCho;
+import io.parsingdata.metal.token.ParRep;
+import io.parsingdata.metal.token.ParRepN;
+import io.parsingdata.metal.token.ParSub;
 import io.parsingdata.metal.token.Post;
 import io.parsingdata.metal.token.Pre;
 import io.parsingdata.metal.token.Rep;
 import io.parsingdata.metal.token.RepN;
 import io.parsingdata.metal.token.Seq;
+import io.parsingdata.metal.token.Span;
 import io.parsingdata.metal.token.Tie;
 import io.parsingdata.metal.token.Token;
 import io.parsingdata.metal.token.TokenRef;
@@ -167,14 +172,34 @@ public final class Shorthand {
     /** @see Cho */ public static Token cho(final String name, final Token token1, final Token token2, final Token... tokens) { return cho(name, null, token1, token2, tokens); }
     /** @see Cho */ public static Token cho(final Encoding encoding, final Token token1, final Token token2, final Token... tokens) { return cho(NO_NAME, encoding, token1, token2, tokens); }
     /** @see Cho */ public static Token cho(final Token token1, final Token token2, final Token... tokens) { return cho((Encoding)null, token1, token2, tokens); }
+    /** @see ParCho */ public static Token pcho(final String name, final Encoding encoding, final Token token1, final Token token2, final Token... tokens) { return new ParCho(name, encoding, token1, token2, tokens); }
+    /** @see ParCho */ public static Token pcho(final String name, final Token token1, final Token token2, final Token... tokens) { return pcho(name, null, token1, token2, tokens); }
+    /** @see ParCho */ public static Token pcho(final Encoding encoding, final Token token1, final Token token2, final Token... tokens) { return pcho(NO_NAME, encoding, token1, token2, tokens); }
+    /** @see ParCho */ public static Token pcho(final Token token1, final Token token2, final Token... tokens) { return pcho((Encoding)null, token1, token2, tokens); }
     /** @see Rep */ public static Token rep(final String name, final Token token, final Encoding encoding) { return new Rep(name, token, encoding); }
     /** @see Rep */ public static Token rep(final String name, final Token token) { return rep(name, token, null); }
     /** @see Rep */ public static Token rep(final Token token, final Encoding encoding) { return rep(NO_NAME, token, encoding); }
     /** @see Rep */ public static Token rep(final Token token) { return rep(token, null); }
+    /** @see ParRep */ public static Token prep(final String name, final Token token, final Encoding encoding) { return new ParRep(name, token, null, encoding); }
+    /** @see ParRep */ public static Token prep(final String name, final Token token) { return prep(name, token, (Encoding)null); }
+    /** @see ParRep */ public static Token prep(final Token token, final Encoding encoding) { return prep(NO_NAME, token, encoding); }
+    /** @see ParRep */ public static Token prep(final Token token) { return prep(token, (Encoding)null); }
+    /** @see ParRep */ public static Token prep(final String name, final Token token, final Token sync, final Encoding encoding) { return new ParRep(name, token, sync, encoding); }
+    /** @see ParRep */ public static Token prep(final String name, final Token token, final Token sync) { return prep(name, token, sync, null); }
+    /** @see ParRep */ public static Token prep(final Token token, final Token sync, final Encoding encoding) { return prep(NO_NAME, token, sync, encoding); }
+    /** @see ParRep */ public static Token prep(final Token token, final Token sync) { return prep(token, sync, null); }
     /** @see RepN */ public static Token repn(final String name, final Token token, final SingleValueExpression n, final Encoding encoding) { return new RepN(name, token, n, encoding); }
     /** @see RepN */ public static Token repn(final String name, final Token token, final SingleValueExpression n) { return repn(name, token, n, null); }
     /** @see RepN */ public static Token repn(final Token token, final SingleValueExpression n, final Encoding encoding) { return repn(NO_NAME, token, n, encoding); }
     /** @see RepN */ public static Token repn(final Token token, final SingleValueExpression n) { return repn(token, n, null); }
+    /** @see ParRepN */ public static Token prepn(final String name, final Token token, final SingleValueExpression n, final Encoding encoding) { return new ParRepN(name, token, n, null, encoding); }
+    /** @see ParRepN */ public static Token prepn(final String name, final Token token, final SingleValueExpression n) { return prepn(name, token, n, (Encoding)null); }
+    /** @see ParRepN */ public static Token prepn(final Token token, final SingleValueExpression n, final Encoding encoding) { return prepn(NO_NAME, token, n, encoding); }
+    /** @see ParRepN */ public static Token prepn(final Token token, final SingleValueExpression n) { return prepn(token, n, (Encoding)null); }
+    /** @see ParRepN */ public static Token prepn(final String name, final Token token, final SingleValueExpression n, final Token sync, final Encoding encoding) { return new ParRepN(name, token, n, sync, encoding); }
+    /** @see ParRepN */ public static Token prepn(final String name, final Token token, final SingleValueExpression n, final Token sync) { return prepn(name, token, n, sync, null); }
+    /** @see ParRepN */ public static Token prepn(final Token token, final SingleValueExpression n, final Token sync, final Encoding encoding) { return prepn(NO_NAME, token, n, sync, encoding); }
+    /** @see ParRepN */ public static Token prepn(final Token token, final SingleValueExpression n, final Token sync) { return prepn(token, n, sync, null); }
     /** @see Seq */ public static Token seq(final String name, final Encoding encoding, final Token token1, final Token token2, final Token... tokens) { return new Seq(name, encoding, token1, token2, tokens); }
     /** @see Seq */ public static Token seq(final String name, final Token token1, final Token token2, final Token... tokens) { return seq(name, null, token1, token2, tokens); }
     /** @see Seq */ public static Token seq(final Encoding encoding, final Token token1, final Token token2, final Token... tokens) { return seq(NO_NAME, encoding, token1, token2, tokens); }
@@ -183,6 +208,10 @@ public final class Shorthand {
     /** @see io.parsingdata.metal.token.Sub */ public static Token sub(final String name, final Token token, final ValueExpression address) { return sub(name, token, address, null); }
     /** @see io.parsingdata.metal.token.Sub */ public static Token sub(final Token token, final ValueExpression address, final Encoding encoding) { return sub(NO_NAME, token, address, encoding); }
     /** @see io.parsingdata.metal.token.Sub */ public static Token sub(final Token token, final ValueExpression address) { return sub(token, address, null); }
+    /** @see ParSub */ public static Token psub(final String name, final Token token, final ValueExpression address, final Encoding encoding) { return new ParSub(name, token, address, encoding); }
+    /** @see ParSub */ public static Token psub(final String name, final Token token, final ValueExpression address) { return psub(name, token, address, null); }
+    /** @see ParSub */ public static Token psub(final Token token, final ValueExpression address, final Encoding encoding) { return psub(NO_NAME, token, address, encoding); }
+    /** @see ParSub */ public static Token psub(final Token token, final ValueExpression address) { return psub(token, address, null); }
     /** @see Pre */ public static Token pre(final String name, final Token token, final Expression predicate, final Encoding encoding) { return new Pre(name, token, predicate, encoding); }
     /** @see Pre */ public static Token pre(final String name, final Token token, final Expression predicate) { return pre(name, token, predicate, null); }
     /** @see Pre */ public static Token pre(final Token token, final Expression predicate, final Encoding encoding) { return pre(NO_NAME, token, predicate, encoding); }
@@ -239,6 +268,12 @@ public final class Shorthand {
     /** "DEFinition": Instantiates a {@link DefUntil} and its terminator nested in a {@link Seq} with {@code initialSize = null}, {@code stepSize = null}, {@code maxSize = null} and {@code encoding = null}. */
     public static Token until(final String name, final Token terminator) { return until(name, terminator, null); }
 
+    /** "SPAN": Instantiates a {@link Span} that parses the longest run of bytes that each satisfy the {@code predicate}. */
+    public static Token span(final String name, final Expression predicate, final Encoding encoding) { return new Span(name, predicate, encoding); }
+
+    /** "SPAN": Instantiates a {@link Span} that parses the longest run of bytes that each satisfy the {@code predicate}, with {@code encoding = null}. */
+    public static Token span(final String name, final Expression predicate) { return span(name, predicate, null); }
+
 
     /** "WHEN": denotes a logical implication, parses the {@code token} only if the {@code predicate} evaluates to {code true} and subsequently only fails if {@code token} does not successfully parse. A composition of {@link Cho} and {@link Pre}. */
     public static Token when(final String name, final Token token, final Expression predicate, final Encoding encoding) { return cho(name, encoding, pre(def(EMPTY_NAME, 0), not(predicate)), token); }
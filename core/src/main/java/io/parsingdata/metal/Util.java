@@ -17,8 +17,6 @@
 
 package io.parsingdata.metal;
 
-import static java.math.BigInteger.ZERO;
-
 import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
 import java.util.Locale;
@@ -70,7 +68,14 @@ public final class Util {
     }
 
     public static BigInteger checkNotNegative(final BigInteger argument, final String name) {
-        if (checkNotNull(argument, name).compareTo(ZERO) < 0) {
+        if (checkNotNull(argument, name).signum() < 0) {
+            throw new IllegalArgumentException(format("Argument %s may not be negative.", name));
+        }
+        return argument;
+    }
+
+    public static long checkNotNegative(final long argument, final String name) {
+        if (argument < 0) {
             throw new IllegalArgumentException(format("Argument %s may not be negative.", name));
         }
         return argument;
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ByteStream} that wraps another <code>ByteStream</code> and caches
+ * the data read from it in fixed-size, aligned blocks.
+ * <p>
+ * Every read is split into the blocks it covers. Blocks are kept in a least
+ * recently used cache of at most <code>blockCount</code> blocks, so the
+ * memory used is bounded by <code>blockSize * blockCount</code> bytes. The
+ * last block of the input may be shorter than <code>blockSize</code>, in
+ * which case all of its available bytes are cached. The
+ * furthest position known to be available is remembered, so repeated
+ * availability checks within that range are not forwarded to the input.
+ * <p>
+ * The number of block lookups that were served from the cache and the
+ * number that required a read from the input are available through
+ * {@link #getHits()} and {@link #getMisses()}.
+ */
+public class BlockCachingByteStream implements ByteStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_BLOCK_COUNT = 256;
+
+    public final ByteStream input;
+    public final int blockSize;
+    private final Map<Long, byte[]> blocks;
+    private long availableEnd;
+    private long hits;
+    private long misses;
+
+    public BlockCachingByteStream(final ByteStream input) {
+        this(input, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+    }
+
+    public BlockCachingByteStream(final ByteStream input, final int blockSize, final int blockCount) {
+        this.input = checkNotNull(input, "input");
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Argument blockSize must be positive.");
+        }
+        if (blockCount <= 0) {
+            throw new IllegalArgumentException("Argument blockCount must be positive.");
+        }
+        this.blockSize = blockSize;
+        this.blocks = new LinkedHashMap<>(blockCount, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+                return size() > blockCount;
+            }
+        };
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        return read(offset.longValueExact(), length);
+    }
+
+    @Override
+    public synchronized byte[] read(final long offset, final int length) throws IOException {
+        checkAvailable(offset, length);
+        final byte[] data = new byte[length];
+        long position = offset;
+        int written = 0;
+        while (written < length) {
+            final long blockIndex = position / blockSize;
+            final int blockOffset = (int)(position - blockIndex * blockSize);
+            final int count = Math.min(length - written, blockSize - blockOffset);
+            System.arraycopy(block(blockIndex, blockOffset + count), blockOffset, data, written, count);
+            written += count;
+            position += count;
+        }
+        return data;
+    }
+
+    @Override
+    public synchronized ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        final long position = offset.longValueExact();
+        checkAvailable(position, length);
+        final long blockIndex = position / blockSize;
+        final int blockOffset = (int)(position - blockIndex * blockSize);
+        if (blockOffset + length > blockSize) {
+            return ByteBuffer.wrap(read(position, length)).asReadOnlyBuffer();
+        }
+        return ByteBuffer.wrap(block(blockIndex, blockOffset + length), blockOffset, length).slice().asReadOnlyBuffer();
+    }
+
+    private void checkAvailable(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available ([offset=%d;length=%d;stream=%s).", offset, length, this));
+        }
+    }
+
+    private byte[] block(final long blockIndex, final int requiredLength) throws IOException {
+        final byte[] block = blocks.get(blockIndex);
+        if (block != null && block.length >= requiredLength) {
+            hits++;
+            return block;
+        }
+        misses++;
+        final long blockStart = blockIndex * blockSize;
+        final byte[] data = input.read(blockStart, availableLength(blockStart, requiredLength));
+        blocks.put(blockIndex, data);
+        return data;
+    }
+
+    // Returns the number of bytes of the block at blockStart that the input has, which is only less than blockSize for the
+    // last block of the input. The first requiredLength bytes are known to be available.
+    private int availableLength(final long blockStart, final int requiredLength) {
+        if (input.isAvailable(blockStart, blockSize)) {
+            return blockSize;
+        }
+        int available = requiredLength;
+        int unavailable = blockSize;
+        while (unavailable - available > 1) {
+            final int middle = (available + unavailable) >>> 1;
+            if (input.isAvailable(blockStart, middle)) {
+                available = middle;
+            } else {
+                unavailable = middle;
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        if (offset.signum() < 0 || length.signum() < 0) {
+            return false;
+        }
+        final long longOffset = Slice.toLong(offset);
+        final long longLength = Slice.toLong(length);
+        if (longOffset < 0 || longLength < 0) {
+            return input.isAvailable(offset, length);
+        }
+        return isAvailable(longOffset, longLength);
+    }
+
+    @Override
+    public synchronized boolean isAvailable(final long offset, final long length) {
+        if (offset < 0 || length < 0) {
+            return false;
+        }
+        if (length <= availableEnd - offset) {
+            return true;
+        }
+        if (!input.isAvailable(offset, length)) {
+            return false;
+        }
+        availableEnd = offset + length;
+        return true;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + input + ";" + blockSize + ")";
+    }
+
+}
@@ -19,11 +19,52 @@ package io.parsingdata.metal.data;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
+/**
+ * The input of a parse, see {@link ParseState#createFromByteStream(ByteStream)}.
+ * <p>
+ * Tokens that parse concurrently ({@link io.parsingdata.metal.token.ParCho},
+ * {@link io.parsingdata.metal.token.ParSub}, {@link io.parsingdata.metal.token.ParRep}
+ * and {@link io.parsingdata.metal.token.ParRepN}, created with the
+ * <code>pcho</code>, <code>psub</code>, <code>prep</code> and
+ * <code>prepn</code> shorthands) call the methods of a ByteStream from
+ * several threads at the same time. A ByteStream used with these tokens
+ * must therefore be thread-safe.
+ */
 public interface ByteStream {
 
     byte[] read(BigInteger offset, int length) throws IOException;
 
     boolean isAvailable(BigInteger offset, BigInteger length);
 
+    /**
+     * Variant of {@link #read(BigInteger, int)} for offsets that fit in a
+     * <code>long</code>, which is how {@link ByteStreamSource} reads on the
+     * common path. Implementations override this method to avoid
+     * <code>BigInteger</code> arithmetic.
+     */
+    default byte[] read(final long offset, final int length) throws IOException {
+        return read(BigInteger.valueOf(offset), length);
+    }
+
+    /**
+     * Variant of {@link #isAvailable(BigInteger, BigInteger)} for offsets and
+     * lengths that fit in a <code>long</code>. Callers guarantee that the sum
+     * of both arguments does not overflow.
+     */
+    default boolean isAvailable(final long offset, final long length) {
+        return isAvailable(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    /**
+     * Return a read-only view on the data at the specified offset. The
+     * default implementation wraps the result of {@link #read(BigInteger, int)}.
+     * Implementations that keep the data in memory can override this method
+     * to avoid copying.
+     */
+    default ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        return ByteBuffer.wrap(read(offset, length)).asReadOnlyBuffer();
+    }
+
 }
@@ -24,6 +24,7 @@ import static io.parsingdata.metal.Util.format;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import io.parsingdata.metal.Util;
@@ -48,11 +49,40 @@ public class ByteStreamSource extends Source {
         }
     }
 
+    @Override
+    protected byte[] getData(final long offset, final int length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        try {
+            return input.read(offset, length);
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        try {
+            return input.readBuffer(offset, length.intValueExact());
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
     @Override
     protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
         return input.isAvailable(checkNotNegative(offset, "offset"), checkNotNegative(length, "length"));
     }
 
+    @Override
+    protected boolean isAvailable(final long offset, final long length) {
+        return input.isAvailable(checkNotNegative(offset, "offset"), checkNotNegative(length, "length"));
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + input + ")";
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+/**
+ * A flag that is set when the result of a parse that is running concurrently
+ * is no longer needed. A Cancellation is also set if the Cancellation it was
+ * created from is set, so that nested concurrent parses stop as well.
+ */
+final class Cancellation {
+
+    private final Cancellation parent; // null if this is the outermost Cancellation
+    private volatile boolean cancelled;
+
+    Cancellation(final Cancellation parent) {
+        this.parent = parent;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        for (Cancellation current = this; current != null; current = current.parent) {
+            if (current.cancelled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
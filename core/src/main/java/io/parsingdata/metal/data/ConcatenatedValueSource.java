@@ -20,8 +20,6 @@ package io.parsingdata.metal.data;
 import static java.math.BigInteger.ZERO;
 import static java.math.BigInteger.valueOf;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
@@ -32,7 +30,6 @@ import java.math.BigInteger;
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.expression.value.Value;
 
@@ -41,32 +38,34 @@ public class ConcatenatedValueSource extends Source {
     public final ImmutableList<Value> values;
     public final BigInteger length;
 
-    private ConcatenatedValueSource(final ImmutableList<Value> values, final BigInteger length) {
+    private final Value[] fragments; // values in order of concatenation
+    private final BigInteger[] offsets; // offsets[i] is the offset of fragments[i], offsets[fragments.length] is the length
+
+    private ConcatenatedValueSource(final ImmutableList<Value> values, final Value[] fragments, final BigInteger[] offsets) {
         this.values = checkNotNull(values, "values");
-        this.length = checkNotNegative(length, "length");
+        this.fragments = fragments;
+        this.offsets = offsets;
+        this.length = checkNotNegative(offsets[fragments.length], "length");
     }
 
     public static Optional<ConcatenatedValueSource> create(final ImmutableList<Value> inputValues) {
         final ImmutableList<Value> values = reverse(inputValues);
-        final BigInteger length = calculateTotalSize(values);
-        if (length.compareTo(ZERO) == 0) {
-            return Optional.empty();
-        }
-        return Optional.of(new ConcatenatedValueSource(values, length));
-    }
-
-    private static BigInteger calculateTotalSize(final ImmutableList<Value> values) {
-        return calculateTotalSize(values, ZERO).computeResult();
-    }
-
-    private static Trampoline<BigInteger> calculateTotalSize(final ImmutableList<Value> values, final BigInteger size) {
-        if (values.isEmpty()) {
-            return complete(() -> size);
+        final Value[] fragments = new Value[(int) values.size];
+        final BigInteger[] offsets = new BigInteger[fragments.length + 1];
+        offsets[0] = ZERO;
+        int index = 0;
+        for (ImmutableList<Value> list = values; !list.isEmpty(); list = list.tail) {
+            if (list.head.equals(NOT_A_VALUE)) {
+                return Optional.empty();
+            }
+            fragments[index] = list.head;
+            offsets[index + 1] = offsets[index].add(list.head.slice().length);
+            index++;
         }
-        if (values.head.equals(NOT_A_VALUE)) {
-            return complete(() -> ZERO);
+        if (offsets[fragments.length].compareTo(ZERO) == 0) {
+            return Optional.empty();
         }
-        return intermediate(() -> calculateTotalSize(values.tail, size.add(values.head.slice().length)));
+        return Optional.of(new ConcatenatedValueSource(values, fragments, offsets));
     }
 
     @Override
@@ -74,22 +73,45 @@ public class ConcatenatedValueSource extends Source {
         if (!isAvailable(offset, length)) {
             throw new IllegalStateException(format("Data to read is not available (offset=%d;length=%d;source=%s).", offset, length, this));
         }
-        return getData(values, ZERO, ZERO, offset, length, new byte[length.intValueExact()]).computeResult();
+        if (length.signum() == 0) {
+            return new byte[0];
+        }
+        int index = findFragment(offset);
+        final BigInteger localOffset = offset.subtract(offsets[index]);
+        if (offset.add(length).compareTo(offsets[index + 1]) <= 0) {
+            return fragments[index].slice().getData(localOffset, length);
+        }
+        final byte[] output = new byte[length.intValueExact()];
+        int position = 0;
+        BigInteger fragmentOffset = localOffset;
+        while (position < output.length) {
+            // The second argument in getData in Slice is a limit. It will return less if the end of slice is reached.
+            final byte[] data = fragments[index].slice().getData(fragmentOffset, valueOf(output.length - position));
+            System.arraycopy(data, 0, output, position, data.length);
+            position += data.length;
+            fragmentOffset = ZERO;
+            index++;
+        }
+        return output;
     }
 
-    private Trampoline<byte[]> getData(final ImmutableList<Value> values, final BigInteger currentOffset, final BigInteger currentDest, final BigInteger offset, final BigInteger length, final byte[] output) {
-        if (length.compareTo(ZERO) <= 0) {
-            return complete(() -> output);
-        }
-        final BigInteger nextOffset = currentOffset.add(values.head.slice().length);
-        if (nextOffset.compareTo(offset) <= 0) {
-            return intermediate(() -> getData(values.tail, nextOffset, currentDest, offset, length, output));
+    /**
+     * Returns the index of the last fragment that starts at or before
+     * <code>offset</code>. Since <code>offset</code> is below the length of
+     * this source, this is the non-empty fragment that contains it.
+     */
+    private int findFragment(final BigInteger offset) {
+        int low = 0;
+        int high = fragments.length - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (offsets[middle].compareTo(offset) <= 0) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
         }
-        final BigInteger localOffset = offset.subtract(currentOffset).compareTo(ZERO) < 0 ? ZERO : offset.subtract(currentOffset);
-        // The second argument in getData in Slice is a limit. It will return less if the end of slice is reached.
-        final byte[] data = values.head.slice().getData(localOffset, length);
-        System.arraycopy(data, 0, output, currentDest.intValueExact(), data.length);
-        return intermediate(() -> getData(values.tail, nextOffset, currentDest.add(valueOf(data.length)), offset, length.subtract(valueOf(data.length)), output));
+        return low;
     }
 
     @Override
@@ -23,6 +23,7 @@ import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -46,11 +47,34 @@ public class ConstantSource extends Source {
         return outputData;
     }
 
+    @Override
+    protected byte[] getData(final long offset, final int length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        final byte[] outputData = new byte[length];
+        System.arraycopy(data, (int) offset, outputData, 0, length);
+        return outputData;
+    }
+
+    @Override
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        return ByteBuffer.wrap(data, offset.intValueExact(), length.intValueExact()).slice().asReadOnlyBuffer();
+    }
+
     @Override
     protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
         return checkNotNegative(length, "length").add(checkNotNegative(offset, "offset")).compareTo(BigInteger.valueOf(data.length)) <= 0;
     }
 
+    @Override
+    protected boolean isAvailable(final long offset, final long length) {
+        return checkNotNegative(length, "length") + checkNotNegative(offset, "offset") <= data.length;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(0x" + bytesToHexString(data) + ")";
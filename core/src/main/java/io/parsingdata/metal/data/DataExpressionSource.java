@@ -17,17 +17,15 @@
 
 package io.parsingdata.metal.data;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.Value;
@@ -40,7 +38,7 @@ public class DataExpressionSource extends Source {
     public final ParseState parseState;
     public final Encoding encoding;
 
-    private byte[] cache = null;
+    private volatile byte[] cache;
 
     public DataExpressionSource(final ValueExpression dataExpression, final int index, final ParseState parseState, final Encoding encoding) {
         this.dataExpression = checkNotNull(dataExpression, "dataExpression");
@@ -49,43 +47,91 @@ public class DataExpressionSource extends Source {
         this.encoding = checkNotNull(encoding, "encoding");
     }
 
+    /**
+     * Creates a DataExpressionSource from a <code>value</code> that the caller
+     * already obtained by evaluating <code>dataExpression</code> on
+     * <code>parseState</code>, at position <code>index</code> of the
+     * results. This avoids evaluating <code>dataExpression</code> again for
+     * each index when a source is needed for every result.
+     */
+    public static DataExpressionSource createFromValue(final ValueExpression dataExpression, final int index, final ParseState parseState, final Encoding encoding, final Value value) {
+        if (checkNotNull(value, "value").equals(NOT_A_VALUE)) {
+            throw new IllegalArgumentException(format("Argument value may not be NOT_A_VALUE (index %d).", index));
+        }
+        final DataExpressionSource source = new DataExpressionSource(dataExpression, index, parseState, encoding);
+        source.cache = value.value();
+        return source;
+    }
+
     @Override
     protected byte[] getData(final BigInteger offset, final BigInteger length) {
+        final byte[] data = getAvailableValue(offset, length);
+        final byte[] outputData = new byte[length.intValueExact()];
+        System.arraycopy(data, offset.intValueExact(), outputData, 0, outputData.length);
+        return outputData;
+    }
+
+    @Override
+    protected byte[] getData(final long offset, final int length) {
         checkNotNegative(offset, "offset");
         final byte[] data = getValue();
-        if (checkNotNegative(length, "length").add(offset).compareTo(BigInteger.valueOf(data.length)) > 0) {
+        if (checkNotNegative(length, "length") + offset > data.length) {
             throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
         }
-        final byte[] outputData = new byte[length.intValueExact()];
-        System.arraycopy(data, offset.intValueExact(), outputData, 0, outputData.length);
+        final byte[] outputData = new byte[length];
+        System.arraycopy(data, (int) offset, outputData, 0, length);
         return outputData;
     }
 
+    @Override
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        final byte[] data = getAvailableValue(offset, length);
+        return ByteBuffer.wrap(data, offset.intValueExact(), length.intValueExact()).slice().asReadOnlyBuffer();
+    }
+
+    private byte[] getAvailableValue(final BigInteger offset, final BigInteger length) {
+        checkNotNegative(offset, "offset");
+        final byte[] data = getValue();
+        if (checkNotNegative(length, "length").add(offset).compareTo(BigInteger.valueOf(data.length)) > 0) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        return data;
+    }
+
     @Override
     protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
         return checkNotNegative(offset, "offset").add(checkNotNegative(length, "length")).compareTo(BigInteger.valueOf(getValue().length)) <= 0;
     }
 
-    private synchronized byte[] getValue() {
-        if (cache == null) {
-            final ImmutableList<Value> results = dataExpression.eval(parseState, encoding);
-            if (results.size <= index) {
-                throw new IllegalStateException(format("ValueExpression dataExpression yields %d result(s) (expected at least %d).", results.size, index+1));
-            }
-            final Value cacheValue = getValueAtIndex(results, index, 0).computeResult();
-            if (cacheValue.equals(NOT_A_VALUE)) {
-                throw new IllegalStateException(format("ValueExpression dataExpression yields NOT_A_VALUE at index %d.", index));
-            }
-            cache = cacheValue.value();
+    @Override
+    protected boolean isAvailable(final long offset, final long length) {
+        return checkNotNegative(offset, "offset") + checkNotNegative(length, "length") <= getValue().length;
+    }
+
+    private byte[] getValue() {
+        final byte[] value = cache;
+        if (value != null) {
+            return value;
         }
-        return cache;
+        // Evaluation has no side effects, so concurrent callers may both evaluate and store the same result.
+        final byte[] result = evaluate();
+        cache = result;
+        return result;
     }
 
-    private Trampoline<Value> getValueAtIndex(final ImmutableList<Value> results, final int index, final int current) {
-        if (index == current) {
-            return complete(() -> results.head);
+    private byte[] evaluate() {
+        final ImmutableList<Value> results = dataExpression.eval(parseState, encoding);
+        if (results.size <= index) {
+            throw new IllegalStateException(format("ValueExpression dataExpression yields %d result(s) (expected at least %d).", results.size, index+1));
+        }
+        ImmutableList<Value> list = results;
+        for (int current = 0; current < index; current++) {
+            list = list.tail;
+        }
+        if (list.head.equals(NOT_A_VALUE)) {
+            throw new IllegalStateException(format("ValueExpression dataExpression yields NOT_A_VALUE at index %d.", index));
         }
-        return intermediate(() -> getValueAtIndex(results.tail, index, current + 1));
+        return list.head.value();
     }
 
     @Override
@@ -19,7 +19,6 @@ package io.parsingdata.metal.data;
 
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.token.Token.NO_NAME;
-import static io.parsingdata.metal.token.Token.SEPARATOR;
 
 import io.parsingdata.metal.data.callback.Callbacks;
 import io.parsingdata.metal.encoding.Encoding;
@@ -28,15 +27,31 @@ import io.parsingdata.metal.token.Token;
 public class Environment {
 
     public final String scope;
+    public final ScopePath scopePath;
     public final ParseState parseState;
     public final Callbacks callbacks;
+    public final MemoTable memoTable;
     public final Encoding encoding;
 
-    public Environment(final String scope, final ParseState parseState, final Callbacks callbacks, final Encoding encoding) {
-        this.scope = checkNotNull(scope, "scope");
+    // Set when the result of this parse is no longer needed, or null if the parse is not cancellable.
+    private final Cancellation cancellation;
+
+    public Environment(final String scope, final ParseState parseState, final Callbacks callbacks, final MemoTable memoTable, final Encoding encoding) {
+        this(ScopePath.root(checkNotNull(scope, "scope")), parseState, callbacks, memoTable, encoding, null);
+    }
+
+    private Environment(final ScopePath scopePath, final ParseState parseState, final Callbacks callbacks, final MemoTable memoTable, final Encoding encoding, final Cancellation cancellation) {
+        this.scopePath = scopePath;
+        this.scope = scopePath.path;
         this.parseState = checkNotNull(parseState, "parseState");
         this.callbacks = checkNotNull(callbacks, "callbacks");
+        this.memoTable = checkNotNull(memoTable, "memoTable");
         this.encoding = checkNotNull(encoding, "encoding");
+        this.cancellation = cancellation;
+    }
+
+    public Environment(final String scope, final ParseState parseState, final Callbacks callbacks, final Encoding encoding) {
+        this(scope, parseState, callbacks, MemoTable.NONE, encoding);
     }
 
     public Environment(final String scope, final ParseState parseState, final Encoding encoding) {
@@ -47,16 +62,46 @@ public class Environment {
         this(NO_NAME, parseState, callbacks, encoding);
     }
 
+    public Environment(final ParseState parseState, final MemoTable memoTable, final Encoding encoding) {
+        this(NO_NAME, parseState, Callbacks.NONE, memoTable, encoding);
+    }
+
     public Environment(final ParseState parseState, final Encoding encoding) {
         this(parseState, Callbacks.NONE, encoding);
     }
 
     public Environment withParseState(final ParseState parseState) {
-        return new Environment(scope, parseState, callbacks, encoding);
+        return new Environment(scopePath, parseState, callbacks, memoTable, encoding, cancellation);
     }
 
     public Environment withEncoding(final Encoding encoding) {
-        return new Environment(scope, parseState, callbacks, encoding);
+        return new Environment(scopePath, parseState, callbacks, memoTable, encoding, cancellation);
+    }
+
+    /**
+     * Returns an Environment for parses that can be stopped through
+     * {@link #cancel()}. Parses from this Environment are also stopped if
+     * the parse of this Environment is cancelled.
+     */
+    public Environment cancellable() {
+        return new Environment(scopePath, parseState, callbacks, memoTable, encoding, new Cancellation(cancellation));
+    }
+
+    /**
+     * Stops the parses from this Environment, and all Environments derived
+     * from it, that are still running. These parses throw a
+     * {@link java.util.concurrent.CancellationException} when they parse
+     * their next token. Has no effect if this Environment is not
+     * {@link #cancellable()}.
+     */
+    public void cancel() {
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
     }
 
     public Environment addBranch(final Token token) {
@@ -68,7 +113,7 @@ public class Environment {
     }
 
     public Environment extendScope(final String name) {
-        return new Environment(scope + (scope.isEmpty() || name.isEmpty() ? NO_NAME : SEPARATOR) + name, parseState, callbacks, encoding);
+        return new Environment(scopePath.extend(name), parseState, callbacks, memoTable, encoding, cancellation);
     }
 
 }
@@ -17,15 +17,12 @@
 
 package io.parsingdata.metal.data;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.data.Selection.reverse;
 
 import java.util.Objects;
 
 import io.parsingdata.metal.ImmutableObject;
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 
 public class ImmutableList<T> extends ImmutableObject {
@@ -51,14 +48,12 @@ public class ImmutableList<T> extends ImmutableObject {
     }
 
     public static <T> ImmutableList<T> create(final T[] array) {
-        return createFromArray(new ImmutableList<>(), checkNotNull(array, "array"), array.length - 1).computeResult();
-    }
-
-    private static <T> Trampoline<ImmutableList<T>> createFromArray(final ImmutableList<T> list, final T[] array, final int index) {
-        if (index < 0) {
-            return complete(() -> list);
+        checkNotNull(array, "array");
+        ImmutableList<T> list = new ImmutableList<>();
+        for (int index = array.length - 1; index >= 0; index--) {
+            list = list.add(array[index]);
         }
-        return intermediate(() -> createFromArray(list.add(array[index]), array, index - 1));
+        return list;
     }
 
     public ImmutableList<T> add(final T head) {
@@ -70,26 +65,24 @@ public class ImmutableList<T> extends ImmutableObject {
         if (isEmpty()) {
             return list;
         }
-        return addRecursive(reverse(list)).computeResult();
-    }
-
-    private Trampoline<ImmutableList<T>> addRecursive(final ImmutableList<T> list) {
-        if (list.isEmpty()) {
-            return complete(() -> this);
+        ImmutableList<T> result = this;
+        for (ImmutableList<T> reversed = reverse(list); !reversed.isEmpty(); reversed = reversed.tail) {
+            result = result.add(reversed.head);
         }
-        return intermediate(() -> add(list.head).addRecursive(list.tail));
+        return result;
     }
 
     public boolean isEmpty() {
         return size == 0;
     }
 
-    public boolean contains(final T value) { return containsRecursive(value).computeResult(); }
-
-    private Trampoline<Boolean> containsRecursive(final T value) {
-        if (isEmpty()) { return complete(() -> false); }
-        if (head.equals(value)) { return complete(() -> true); }
-        return intermediate(() -> tail.containsRecursive(value));
+    public boolean contains(final T value) {
+        for (ImmutableList<T> list = this; !list.isEmpty(); list = list.tail) {
+            if (list.head.equals(value)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
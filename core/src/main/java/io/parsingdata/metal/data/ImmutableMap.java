@@ -0,0 +1,277 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+
+/**
+ * A persistent map, implemented as a hash array mapped trie.
+ * <p>
+ * Adding an entry returns a new map that shares all unchanged nodes with
+ * the original, so {@link #put(Object, Object)} and {@link #get(Object)}
+ * take time logarithmic in the size of the map and the original map remains
+ * valid and unchanged. Keys and values may not be <code>null</code>.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class ImmutableMap<K, V> extends ImmutableObject {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    private final Node<K, V> root;
+    public final int size;
+
+    public ImmutableMap() {
+        this(new BitmapNode<>(0, new Object[0]), 0);
+    }
+
+    private ImmutableMap(final Node<K, V> root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public V get(final K key) {
+        return root.get(checkNotNull(key, "key"), key.hashCode(), 0);
+    }
+
+    public V getOrDefault(final K key, final V defaultValue) {
+        final V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(final K key) {
+        return get(key) != null;
+    }
+
+    public ImmutableMap<K, V> put(final K key, final V value) {
+        final boolean[] added = { false };
+        final Node<K, V> newRoot = root.put(new Entry<>(checkNotNull(key, "key"), checkNotNull(value, "value")), key.hashCode(), 0, added);
+        return new ImmutableMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(final BiConsumer<K, V> action) {
+        root.forEach(checkNotNull(action, "action"));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        forEach((key, value) -> builder.append(builder.length() == 0 ? "" : ",").append(key).append('=').append(value));
+        return "{" + builder + "}";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!Util.notNullAndSameClass(this, obj) || size != ((ImmutableMap<?, ?>)obj).size) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        final ImmutableMap<K, V> other = (ImmutableMap<K, V>)obj;
+        final boolean[] equal = { true };
+        forEach((key, value) -> equal[0] &= value.equals(other.get(key)));
+        return equal[0];
+    }
+
+    @Override
+    public int immutableHashCode() {
+        final int[] hash = { getClass().hashCode() };
+        forEach((key, value) -> hash[0] += key.hashCode() ^ value.hashCode());
+        return hash[0];
+    }
+
+    private static final class Entry<K, V> {
+
+        final K key;
+        final V value;
+
+        Entry(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    private interface Node<K, V> {
+
+        V get(K key, int hash, int shift);
+
+        /**
+         * Returns a node that contains <code>entry</code>, setting
+         * <code>added[0]</code> when its key was not present before.
+         */
+        Node<K, V> put(Entry<K, V> entry, int hash, int shift, boolean[] added);
+
+        void forEach(BiConsumer<K, V> action);
+
+    }
+
+    /**
+     * A node with up to 32 children, each either an {@link Entry} or a
+     * {@link Node}. The bitmap records which of the 32 positions at this
+     * level are occupied, so the children array holds no empty slots.
+     */
+    private static final class BitmapNode<K, V> implements Node<K, V> {
+
+        private final int bitmap;
+        private final Object[] children;
+
+        BitmapNode(final int bitmap, final Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(final K key, final int hash, final int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final Object child = children[index(bit)];
+            if (child instanceof Entry) {
+                final Entry<K, V> entry = (Entry<K, V>)child;
+                return entry.key.equals(key) ? entry.value : null;
+            }
+            return ((Node<K, V>)child).get(key, hash, shift + BITS_PER_LEVEL);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Node<K, V> put(final Entry<K, V> entry, final int hash, final int shift, final boolean[] added) {
+            final int bit = bit(hash, shift);
+            final int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                final Object[] newChildren = new Object[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = entry;
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                return new BitmapNode<>(bitmap | bit, newChildren);
+            }
+            final Object child = children[index];
+            final Object newChild;
+            if (child instanceof Entry) {
+                final Entry<K, V> existing = (Entry<K, V>)child;
+                if (existing.key.equals(entry.key)) {
+                    newChild = entry;
+                } else {
+                    added[0] = true;
+                    newChild = merge(existing, existing.key.hashCode(), entry, hash, shift + BITS_PER_LEVEL);
+                }
+            } else {
+                newChild = ((Node<K, V>)child).put(entry, hash, shift + BITS_PER_LEVEL, added);
+            }
+            final Object[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new BitmapNode<>(bitmap, newChildren);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(final BiConsumer<K, V> action) {
+            for (final Object child : children) {
+                if (child instanceof Entry) {
+                    action.accept(((Entry<K, V>)child).key, ((Entry<K, V>)child).value);
+                } else {
+                    ((Node<K, V>)child).forEach(action);
+                }
+            }
+        }
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+    }
+
+    /**
+     * A node holding entries whose keys have the same hash code.
+     */
+    private static final class CollisionNode<K, V> implements Node<K, V> {
+
+        private final Entry<K, V>[] entries;
+
+        CollisionNode(final Entry<K, V>[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public V get(final K key, final int hash, final int shift) {
+            for (final Entry<K, V> entry : entries) {
+                if (entry.key.equals(key)) {
+                    return entry.value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node<K, V> put(final Entry<K, V> entry, final int hash, final int shift, final boolean[] added) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    final Entry<K, V>[] newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode<>(newEntries);
+                }
+            }
+            added[0] = true;
+            final Entry<K, V>[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            return new CollisionNode<>(newEntries);
+        }
+
+        @Override
+        public void forEach(final BiConsumer<K, V> action) {
+            for (final Entry<K, V> entry : entries) {
+                action.accept(entry.key, entry.value);
+            }
+        }
+
+    }
+
+    private static <K, V> Node<K, V> merge(final Entry<K, V> left, final int leftHash, final Entry<K, V> right, final int rightHash, final int shift) {
+        if (shift >= Integer.SIZE) {
+            @SuppressWarnings("unchecked")
+            final Entry<K, V>[] entries = (Entry<K, V>[])new Entry<?, ?>[] { left, right };
+            return new CollisionNode<>(entries);
+        }
+        final int leftBit = bit(leftHash, shift);
+        final int rightBit = bit(rightHash, shift);
+        if (leftBit == rightBit) {
+            return new BitmapNode<>(leftBit, new Object[] { merge(left, leftHash, right, rightHash, shift + BITS_PER_LEVEL) });
+        }
+        return new BitmapNode<>(leftBit | rightBit, Integer.compareUnsigned(leftBit, rightBit) < 0 ? new Object[] { left, right } : new Object[] { right, left });
+    }
+
+    private static int bit(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link ByteStream} backed by a memory-mapped file.
+ * <p>
+ * The file is mapped in aligned windows of <code>windowSize</code> bytes,
+ * so files larger than the 2 GB limit of a single {@link MappedByteBuffer}
+ * are supported. At most <code>windowCount</code> windows are kept mapped at
+ * the same time; the least recently used window is dropped when a read
+ * requires a new one. Reads that span a window boundary are served from
+ * consecutive windows.
+ * <p>
+ * Calling {@link #close()} closes the underlying channel and drops this
+ * stream's references to its windows. Subsequent reads fail with an
+ * {@link IOException}. Neither closing nor dropping a window unmaps it: the
+ * JVM only unmaps a window when it and every buffer returned by
+ * {@link #readBuffer(BigInteger, int)} that shares its memory have been
+ * garbage collected. Those buffers therefore remain readable after closing,
+ * but the mapped memory is not released at a predictable time.
+ */
+public class MappedByteStream implements ByteStream, AutoCloseable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    public static final int DEFAULT_WINDOW_COUNT = 4;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final Map<Long, MappedByteBuffer> windows;
+
+    public MappedByteStream(final Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE, DEFAULT_WINDOW_COUNT);
+    }
+
+    public MappedByteStream(final Path path, final int windowSize, final int windowCount) throws IOException {
+        checkNotNull(path, "path");
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Argument windowSize must be positive.");
+        }
+        if (windowCount <= 0) {
+            throw new IllegalArgumentException("Argument windowCount must be positive.");
+        }
+        this.windowSize = windowSize;
+        this.windows = new LinkedHashMap<>(windowCount, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, MappedByteBuffer> eldest) {
+                return size() > windowCount;
+            }
+        };
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        return read(offset.longValueExact(), length);
+    }
+
+    @Override
+    public synchronized byte[] read(final long offset, final int length) throws IOException {
+        checkReadable(offset, length);
+        final byte[] data = new byte[length];
+        long position = offset;
+        int written = 0;
+        while (written < length) {
+            final long windowIndex = position / windowSize;
+            final MappedByteBuffer window = window(windowIndex);
+            final int windowOffset = (int)(position - windowIndex * windowSize);
+            final int count = Math.min(length - written, window.limit() - windowOffset);
+            window.get(windowOffset, data, written, count);
+            written += count;
+            position += count;
+        }
+        return data;
+    }
+
+    @Override
+    public synchronized ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        final long position = offset.longValueExact();
+        checkReadable(position, length);
+        final long windowIndex = position / windowSize;
+        final int windowOffset = (int)(position - windowIndex * windowSize);
+        final MappedByteBuffer window = window(windowIndex);
+        if (window.limit() - windowOffset < length) {
+            return ByteBuffer.wrap(read(position, length)).asReadOnlyBuffer();
+        }
+        return window.slice(windowOffset, length).asReadOnlyBuffer();
+    }
+
+    private void checkReadable(final long offset, final int length) throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Stream is closed.");
+        }
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available ([offset=%d;length=%d;stream=%s).", offset, length, this));
+        }
+    }
+
+    private MappedByteBuffer window(final long windowIndex) throws IOException {
+        final MappedByteBuffer window = windows.get(windowIndex);
+        if (window != null) {
+            return window;
+        }
+        final long windowStart = windowIndex * windowSize;
+        final MappedByteBuffer mapped = channel.map(READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        windows.put(windowIndex, mapped);
+        return mapped;
+    }
+
+    @Override
+    public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        return offset.signum() >= 0 && length.signum() >= 0 && offset.add(length).compareTo(BigInteger.valueOf(size)) <= 0;
+    }
+
+    @Override
+    public boolean isAvailable(final long offset, final long length) {
+        return offset >= 0 && length >= 0 && length <= size - offset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        windows.clear();
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + size + ")";
+    }
+
+}
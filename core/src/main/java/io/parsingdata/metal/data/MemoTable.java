@@ -0,0 +1,406 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static io.parsingdata.metal.Util.checkContainsNoNulls;
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.Expression;
+import io.parsingdata.metal.expression.True;
+import io.parsingdata.metal.expression.comparison.ComparisonExpression;
+import io.parsingdata.metal.expression.comparison.Eq;
+import io.parsingdata.metal.expression.comparison.EqNum;
+import io.parsingdata.metal.expression.comparison.EqStr;
+import io.parsingdata.metal.expression.comparison.GtEqNum;
+import io.parsingdata.metal.expression.comparison.GtNum;
+import io.parsingdata.metal.expression.comparison.LtEqNum;
+import io.parsingdata.metal.expression.comparison.LtNum;
+import io.parsingdata.metal.expression.logical.And;
+import io.parsingdata.metal.expression.logical.BinaryLogicalExpression;
+import io.parsingdata.metal.expression.logical.Not;
+import io.parsingdata.metal.expression.logical.Or;
+import io.parsingdata.metal.expression.value.BinaryValueExpression;
+import io.parsingdata.metal.expression.value.Cat;
+import io.parsingdata.metal.expression.value.Const;
+import io.parsingdata.metal.expression.value.UnaryValueExpression;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.expression.value.arithmetic.Add;
+import io.parsingdata.metal.expression.value.arithmetic.Div;
+import io.parsingdata.metal.expression.value.arithmetic.Mod;
+import io.parsingdata.metal.expression.value.arithmetic.Mul;
+import io.parsingdata.metal.expression.value.arithmetic.Neg;
+import io.parsingdata.metal.expression.value.bitwise.ShiftLeft;
+import io.parsingdata.metal.expression.value.bitwise.ShiftRight;
+import io.parsingdata.metal.expression.value.reference.CurrentOffset;
+import io.parsingdata.metal.expression.value.reference.Len;
+import io.parsingdata.metal.expression.value.reference.Self;
+import io.parsingdata.metal.token.Cho;
+import io.parsingdata.metal.token.Def;
+import io.parsingdata.metal.token.DefUntil;
+import io.parsingdata.metal.token.IterableToken;
+import io.parsingdata.metal.token.ParCho;
+import io.parsingdata.metal.token.ParRep;
+import io.parsingdata.metal.token.ParRepN;
+import io.parsingdata.metal.token.Post;
+import io.parsingdata.metal.token.Pre;
+import io.parsingdata.metal.token.Rep;
+import io.parsingdata.metal.token.RepN;
+import io.parsingdata.metal.token.Seq;
+import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.token.While;
+
+/**
+ * A memo table that caches the outcome of parsing a {@link Token} at a
+ * specific offset in a specific {@link Source}, for use during a single
+ * parse run.
+ * <p>
+ * A MemoTable is attached to an {@link Environment}. Whenever a token is
+ * parsed again with the same source, offset, scope and encoding, the
+ * previously parsed items are added to the current {@link ParseState}
+ * instead of parsing the token again. Failures are cached as well. This
+ * prevents repeated parsing of the same token at the same location by
+ * backtracking tokens such as {@link Cho}, {@link Rep} and {@link DefUntil}.
+ * <p>
+ * Only tokens whose outcome is fully determined by the input at the current
+ * offset are memoized: compositions of {@link Def}, {@link DefUntil},
+ * {@link Post}, {@link Pre}, {@link Seq}, {@link Cho}, {@link Rep},
+ * {@link RepN} and {@link While} that only use constants, the current offset
+ * and arithmetic on those in their expressions. References to previously
+ * parsed values, as well as {@link io.parsingdata.metal.token.Sub},
+ * {@link io.parsingdata.metal.token.Tie} and
+ * {@link io.parsingdata.metal.token.TokenRef}, make a token ineligible. The
+ * value just parsed may only be compared against in the predicate of a
+ * {@link Post} that directly wraps a {@link Def} of a constant size. Only
+ * tokens parsed from a {@link ByteStreamSource} are memoized and the memo
+ * table is bypassed when any callbacks are registered, so that callbacks
+ * observe every parse.
+ * <p>
+ * The table holds at most {@link #DEFAULT_CAPACITY} outcomes. When it is
+ * full, the least recently used outcome is evicted, after which that token
+ * is parsed again at that location when needed. This bounds the memory used
+ * by a parse run that visits many (token, offset) pairs.
+ * <p>
+ * The number of lookups per token that were served from the table and the
+ * number that required a parse are available through
+ * {@link #getHits(Token)} and {@link #getMisses(Token)}.
+ */
+public class MemoTable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    public static final MemoTable NONE = new MemoTable(token -> false, 0);
+
+    // The library's value expressions whose value only depends on their operands.
+    static final Set<Class<?>> PURE_VALUE_EXPRESSIONS = Set.of(Add.class, Div.class, Mod.class, Mul.class, Neg.class,
+                                                                       io.parsingdata.metal.expression.value.arithmetic.Sub.class,
+                                                                       io.parsingdata.metal.expression.value.bitwise.And.class,
+                                                                       io.parsingdata.metal.expression.value.bitwise.Not.class,
+                                                                       io.parsingdata.metal.expression.value.bitwise.Or.class,
+                                                                       ShiftLeft.class, ShiftRight.class, Cat.class, Len.class);
+    static final Set<Class<?>> COMPARISON_EXPRESSIONS = Set.of(Eq.class, EqNum.class, EqStr.class, GtEqNum.class, GtNum.class, LtEqNum.class, LtNum.class);
+
+    private final Predicate<Token> enabled;
+    private final Map<Key, Optional<Outcome>> outcomes;
+    private final Map<Token, Boolean> memoizable = new HashMap<>();
+    private final Map<Token, long[]> statistics = new HashMap<>();
+
+    MemoTable(final Predicate<Token> enabled, final int capacity) {
+        this.enabled = enabled;
+        this.outcomes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Optional<Outcome>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return a MemoTable that memoizes all eligible tokens
+     */
+    public static MemoTable create() {
+        return new MemoTable(token -> true, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param tokens the tokens to memoize, if they are eligible
+     * @return a MemoTable that only memoizes the provided tokens
+     */
+    public static MemoTable create(final Token... tokens) {
+        final ImmutableList<Token> tokenList = ImmutableList.create(checkContainsNoNulls(tokens, "tokens"));
+        return new MemoTable(tokenList::contains, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Parses the token using the provided parser, or replays a previous
+     * outcome of parsing the same token at the same location.
+     *
+     * @param token the token to parse
+     * @param environment the environment to parse the token in, with its scope already extended
+     * @param parser the function that actually parses the token
+     * @return the outcome of parsing the token in the environment
+     */
+    public Optional<ParseState> parse(final Token token, final Environment environment, final Function<Environment, Optional<ParseState>> parser) {
+        if (this == NONE || !environment.callbacks.isEmpty() || !(environment.parseState.source instanceof ByteStreamSource) || !environment.parseState.getRetention().retainsAll() || !isMemoizable(token)) {
+            return parser.apply(environment);
+        }
+        final ParseState before = environment.parseState;
+        final Key key = new Key(token, before.source, before.offset, environment.scope, environment.encoding);
+        final Optional<Outcome> cached = lookup(token, key);
+        if (cached != null) {
+            return cached.map(outcome -> outcome.apply(before));
+        }
+        final Optional<ParseState> result = parser.apply(environment);
+        store(key, result.map(after -> Outcome.of(before, after)));
+        return result;
+    }
+
+    private synchronized Optional<Outcome> lookup(final Token token, final Key key) {
+        final Optional<Outcome> cached = outcomes.get(key);
+        statistics.computeIfAbsent(token, ignore -> new long[2])[cached != null ? 0 : 1]++;
+        return cached;
+    }
+
+    private synchronized void store(final Key key, final Optional<Outcome> outcome) {
+        outcomes.put(key, outcome);
+    }
+
+    private synchronized boolean isMemoizable(final Token token) {
+        if (!enabled.test(token)) {
+            return false;
+        }
+        final Boolean known = memoizable.get(token);
+        if (known != null) {
+            return known;
+        }
+        final boolean result = isContextFree(token);
+        memoizable.put(token, result);
+        return result;
+    }
+
+    public synchronized long getHits(final Token token) {
+        return statistics.containsKey(token) ? statistics.get(token)[0] : 0;
+    }
+
+    public synchronized long getMisses(final Token token) {
+        return statistics.containsKey(token) ? statistics.get(token)[1] : 0;
+    }
+
+    /**
+     * @return the tokens that have been looked up in this table
+     */
+    public synchronized ImmutableList<Token> getTokens() {
+        ImmutableList<Token> tokens = new ImmutableList<>();
+        for (final Token token : statistics.keySet()) {
+            tokens = tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * @param token the token to analyze
+     * @return whether the outcome of parsing <code>token</code> is fully
+     *         determined by the input at the current offset, so that it can
+     *         be parsed without the items parsed before it
+     */
+    public static boolean isContextFree(final Token token) {
+        final Class<?> type = token.getClass();
+        if (type == Def.class) {
+            return isContextFreeValue(((Def) token).size, false);
+        }
+        if (type == DefUntil.class) {
+            final DefUntil defUntil = (DefUntil) token;
+            return isContextFreeValue(defUntil.initialSize, false)
+                && isContextFreeValue(defUntil.stepSize, false)
+                && isContextFreeValue(defUntil.maxSize, false)
+                && isContextFree(defUntil.terminator);
+        }
+        if (type == Post.class) {
+            final Post post = (Post) token;
+            return isContextFree(post.token) && isContextFreePredicate(post.predicate, isSizedDef(post.token));
+        }
+        if (type == Pre.class) {
+            return isContextFree(((Pre) token).token) && isContextFreePredicate(((Pre) token).predicate, false);
+        }
+        if (type == Seq.class) {
+            return isContextFree(((Seq) token).tokens);
+        }
+        if (type == Cho.class || type == ParCho.class) {
+            return isContextFree(((Cho) token).tokens);
+        }
+        if (type == Rep.class || type == ParRep.class) {
+            return isContextFree(((IterableToken) token).token);
+        }
+        if (type == RepN.class || type == ParRepN.class) {
+            return isContextFree(((IterableToken) token).token) && isContextFreeValue(((RepN) token).n, false);
+        }
+        if (type == While.class) {
+            return isContextFree(((IterableToken) token).token) && isContextFreePredicate(((While) token).predicate, false);
+        }
+        return false;
+    }
+
+    private static boolean isContextFree(final ImmutableList<Token> tokens) {
+        for (ImmutableList<Token> list = tokens; !list.isEmpty(); list = list.tail) {
+            if (!isContextFree(list.head)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSizedDef(final Token token) {
+        return token.getClass() == Def.class
+            && ((Def) token).size instanceof Const
+            && !((Const) ((Def) token).size).value.equals(NOT_A_VALUE)
+            && ((Const) ((Def) token).size).value.asNumeric().signum() > 0;
+    }
+
+    /**
+     * @param selfAllowed whether the expression may refer to the value just parsed
+     */
+    private static boolean isContextFreePredicate(final Expression expression, final boolean selfAllowed) {
+        final Class<?> type = expression.getClass();
+        if (type == True.class) {
+            return true;
+        }
+        if (type == And.class || type == Or.class) {
+            return isContextFreePredicate(((BinaryLogicalExpression) expression).left, selfAllowed)
+                && isContextFreePredicate(((BinaryLogicalExpression) expression).right, selfAllowed);
+        }
+        if (type == Not.class) {
+            return isContextFreePredicate(((Not) expression).operand, selfAllowed);
+        }
+        if (COMPARISON_EXPRESSIONS.contains(type)) {
+            final ComparisonExpression comparison = (ComparisonExpression) expression;
+            return (comparison.value == null ? selfAllowed : isContextFreeValue(comparison.value, selfAllowed))
+                && isContextFreeValue(comparison.predicate, selfAllowed);
+        }
+        return false;
+    }
+
+    private static boolean isContextFreeValue(final ValueExpression expression, final boolean selfAllowed) {
+        final Class<?> type = expression.getClass();
+        if (type == Const.class || type == CurrentOffset.class) {
+            return true;
+        }
+        if (type == Self.class) {
+            return selfAllowed;
+        }
+        if (PURE_VALUE_EXPRESSIONS.contains(type)) {
+            if (expression instanceof BinaryValueExpression) {
+                return isContextFreeValue(((BinaryValueExpression) expression).left, selfAllowed)
+                    && isContextFreeValue(((BinaryValueExpression) expression).right, selfAllowed);
+            }
+            return isContextFreeValue(((UnaryValueExpression) expression).operand, selfAllowed);
+        }
+        return false;
+    }
+
+    private static final class Key {
+
+        private final Token token;
+        private final Source source;
+        private final BigInteger offset;
+        private final String scope;
+        private final Encoding encoding;
+        private final int hashCode;
+
+        Key(final Token token, final Source source, final BigInteger offset, final String scope, final Encoding encoding) {
+            this.token = checkNotNull(token, "token");
+            this.source = checkNotNull(source, "source");
+            this.offset = checkNotNull(offset, "offset");
+            this.scope = checkNotNull(scope, "scope");
+            this.encoding = checkNotNull(encoding, "encoding");
+            this.hashCode = Objects.hash(token, source, offset, scope, encoding);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key
+                && Objects.equals(token, ((Key) obj).token)
+                && Objects.equals(source, ((Key) obj).source)
+                && Objects.equals(offset, ((Key) obj).offset)
+                && Objects.equals(scope, ((Key) obj).scope)
+                && Objects.equals(encoding, ((Key) obj).encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+    /**
+     * The changes a successful parse made to a {@link ParseState}: the items
+     * added to its current branch, the cycle references added and the offset
+     * after parsing. Applying it to another ParseState at the same location
+     * re-roots the parsed items onto that state's graph.
+     */
+    static final class Outcome {
+
+        private final ImmutableList<ParseItem> items;
+        private final ImmutableList<ParseReference> references;
+        private final BigInteger offset;
+        private final BigInteger iterations; // Completed iterations of the current iterable token.
+
+        private Outcome(final ImmutableList<ParseItem> items, final ImmutableList<ParseReference> references, final BigInteger offset, final BigInteger iterations) {
+            this.items = items;
+            this.references = references;
+            this.offset = offset;
+            this.iterations = iterations;
+        }
+
+        static Outcome of(final ParseState before, final ParseState after) {
+            ImmutableList<ParseItem> items = new ImmutableList<>();
+            ParseGraph branch = after.order.currentBranch();
+            for (long count = branch.size - before.order.currentBranch().size; count > 0; count--) {
+                items = items.add(branch.head);
+                branch = branch.tail;
+            }
+            ImmutableList<ParseReference> references = new ImmutableList<>();
+            ImmutableList<ParseReference> added = after.references;
+            for (long count = after.references.size - before.references.size; count > 0; count--) {
+                references = references.add(added.head);
+                added = added.tail;
+            }
+            final BigInteger iterations = before.iterations.isEmpty() || after.iterations.size != before.iterations.size ? ZERO : after.iterations.head.right.subtract(before.iterations.head.right);
+            return new Outcome(items, references, after.offset, iterations);
+        }
+
+        ParseState apply(final ParseState parseState) {
+            return parseState.append(items, references, offset, iterations);
+        }
+
+    }
+
+}
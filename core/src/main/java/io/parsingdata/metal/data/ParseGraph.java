@@ -21,6 +21,8 @@ import static io.parsingdata.metal.Trampoline.complete;
 import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -81,6 +83,13 @@ public class ParseGraph extends ImmutableObject implements ParseItem {
         return new ParseGraph(parseReference, this, definition);
     }
 
+    protected ParseGraph add(final ParseGraph graph) {
+        if (branched) {
+            return new ParseGraph(head.asGraph().add(graph), tail, definition, true, scopeDepth);
+        }
+        return new ParseGraph(graph, this, definition);
+    }
+
     protected ParseGraph addBranch(final Token definition) {
         if (branched) {
             return new ParseGraph(head.asGraph().addBranch(definition), tail, this.definition, true, definition.isScopeDelimiter() ? scopeDepth + 1 : scopeDepth);
@@ -105,6 +114,137 @@ public class ParseGraph extends ImmutableObject implements ParseItem {
         return new ParseGraph(head, tail, definition);
     }
 
+    /**
+     * @return The innermost open branch of this graph, to which items are added
+     */
+    protected ParseGraph currentBranch() {
+        ParseGraph graph = this;
+        while (graph.branched) {
+            graph = graph.head.asGraph();
+        }
+        return graph;
+    }
+
+    /**
+     * @param retention the Retention that determines which items are kept
+     * @param current the value returned by {@link #current()}, which is always kept
+     * @return This graph, with the items in the head of its current branch
+     * dropped that <code>retention</code> does not retain
+     */
+    protected ParseGraph prune(final Retention retention, final ParseValue current) {
+        if (branched) {
+            final ParseGraph prunedBranch = head.asGraph().prune(retention, current);
+            return prunedBranch == head ? this : new ParseGraph(prunedBranch, tail, definition, true, scopeDepth);
+        }
+        if (isEmpty()) {
+            return this;
+        }
+        final ParseItem prunedHead = prune(head, retention, current);
+        if (prunedHead == head) {
+            return this;
+        }
+        return prunedHead == null ? tail : new ParseGraph(prunedHead, tail, definition);
+    }
+
+    /**
+     * @param retention the Retention that determines which items are kept
+     * @param current the value returned by {@link #current()}, which is always kept
+     * @param dropped the list to which the dropped values are added, most recently added first
+     * @return This graph, with all items in the head of its current branch
+     * dropped that <code>retention</code> does not retain, at any depth
+     */
+    protected ParseGraph pruneAll(final Retention retention, final ParseValue current, final List<ParseValue> dropped) {
+        if (branched) {
+            final ParseGraph prunedBranch = head.asGraph().pruneAll(retention, current, dropped);
+            return prunedBranch == head ? this : new ParseGraph(prunedBranch, tail, definition, true, scopeDepth);
+        }
+        if (isEmpty()) {
+            return this;
+        }
+        final ParseItem prunedHead = pruneAll(head, retention, current, dropped);
+        if (prunedHead == head) {
+            return this;
+        }
+        return prunedHead == null ? tail : new ParseGraph(prunedHead, tail, definition);
+    }
+
+    private static ParseItem pruneAll(final ParseItem item, final Retention retention, final ParseValue current, final List<ParseValue> dropped) {
+        if (item.isValue()) {
+            if (item == current || retention.retains(item.asValue())) {
+                return item;
+            }
+            dropped.add(item.asValue());
+            return null;
+        }
+        if (item.isReference()) {
+            return null;
+        }
+        final List<ParseItem> items = new ArrayList<>();
+        boolean changed = false;
+        ParseGraph graph = item.asGraph();
+        for (; !graph.isEmpty(); graph = graph.tail) {
+            final ParseItem prunedItem = pruneAll(graph.head, retention, current, dropped);
+            changed |= prunedItem != graph.head;
+            if (prunedItem != null) {
+                items.add(prunedItem);
+            }
+        }
+        if (!changed) {
+            return item;
+        }
+        for (int i = items.size() - 1; i >= 0; i--) {
+            graph = new ParseGraph(items.get(i), graph, graph.definition);
+        }
+        return graph.isEmpty() && !retention.retains(graph.definition) ? null : graph;
+    }
+
+    /**
+     * @param value the value returned by {@link #current()}
+     * @param retention the Retention that determines which graphs are kept
+     * @return This graph without <code>value</code> and the closed graphs that
+     * only contained it, unless <code>retention</code> retains them
+     */
+    protected ParseGraph remove(final ParseValue value, final Retention retention) {
+        if (isEmpty()) {
+            return this;
+        }
+        if (branched) {
+            final ParseGraph branch = head.asGraph().remove(value, retention);
+            if (branch != head) {
+                return new ParseGraph(branch, tail, definition, true, scopeDepth);
+            }
+            final ParseGraph newTail = tail.remove(value, retention);
+            return newTail == tail ? this : new ParseGraph(head, newTail, definition, true, scopeDepth);
+        }
+        if (head == value) {
+            return tail;
+        }
+        if (head.isGraph() && !head.asGraph().isEmpty()) {
+            final ParseGraph graph = head.asGraph().remove(value, retention);
+            if (graph == head) {
+                return this;
+            }
+            return graph.isEmpty() && !retention.retains(graph.definition) ? tail : new ParseGraph(graph, tail, definition);
+        }
+        if (head.isValue()) {
+            return this;
+        }
+        final ParseGraph newTail = tail.remove(value, retention);
+        return newTail == tail ? this : new ParseGraph(head, newTail, definition);
+    }
+
+    private static ParseItem prune(final ParseItem item, final Retention retention, final ParseValue current) {
+        if (item.isValue()) {
+            return item == current || retention.retains(item.asValue()) ? item : null;
+        }
+        if (item.isReference()) {
+            return null;
+        }
+        // The tail of a closed graph was pruned while its head was the most recent item.
+        final ParseGraph graph = item.asGraph().prune(retention, current);
+        return graph.isEmpty() && !retention.retains(graph.definition) ? null : graph;
+    }
+
     public boolean isEmpty() { return size == 0; }
 
     /**
@@ -25,8 +25,11 @@ import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
 import static io.parsingdata.metal.data.ParseValueCache.NO_CACHE;
 import static io.parsingdata.metal.data.Slice.createFromSource;
+import static io.parsingdata.metal.data.Slice.toLong;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -43,13 +46,42 @@ public class ParseState extends ImmutableObject {
     public final ImmutableList<ImmutablePair<Token, BigInteger>> iterations;
     public final ImmutableList<ParseReference> references;
 
+    // The offset as a primitive, or -1 if it is too large for long arithmetic. BigInteger is the fallback.
+    private final long longOffset;
+
+    private static final ImmutableMap<ParseReference, ParseReference> NO_REFERENCES = new ImmutableMap<>();
+
+    // The references as a set, passed on by the ParseState this one is derived from, or built on first use if it was created
+    // through the public constructor.
+    private ImmutableMap<ParseReference, ParseReference> referenceSet;
+
+    // For each name not used by an open branch, the definition of the first item with that name in a depth-first traversal
+    // of order. Built on first use and passed on to derived ParseStates, which maintain it as items are added and branches
+    // are closed.
+    private ImmutableMap<String, Token> definitions;
+
+    // The items to keep in order, or null if all of them are kept.
+    private final Retention retention;
+
+    // The current value of order, if it is only kept because it is the current value since an iteration finished.
+    private final ParseValue expired;
+
     public ParseState(final ParseGraph order, final ParseValueCache cache, final Source source, final BigInteger offset, final ImmutableList<ImmutablePair<Token, BigInteger>> iterations, final ImmutableList<ParseReference> references) {
+        this(order, cache, source, checkNotNegative(offset, "offset"), toLong(offset), iterations, references, null, null, null, null);
+    }
+
+    private ParseState(final ParseGraph order, final ParseValueCache cache, final Source source, final BigInteger offset, final long longOffset, final ImmutableList<ImmutablePair<Token, BigInteger>> iterations, final ImmutableList<ParseReference> references, final ImmutableMap<ParseReference, ParseReference> referenceSet, final ImmutableMap<String, Token> definitions, final Retention retention, final ParseValue expired) {
         this.order = checkNotNull(order, "order");
         this.cache = checkNotNull(cache, "cache");
         this.source = checkNotNull(source, "source");
         this.offset = checkNotNegative(offset, "offset");
+        this.longOffset = longOffset;
         this.iterations = checkNotNull(iterations, "iterations");
         this.references = checkNotNull(references, "references");
+        this.referenceSet = references.isEmpty() ? NO_REFERENCES : referenceSet;
+        this.definitions = definitions;
+        this.retention = retention;
+        this.expired = expired;
     }
 
     public static ParseState createFromByteStream(final ByteStream input, final BigInteger offset) {
@@ -61,46 +93,256 @@ public class ParseState extends ImmutableObject {
     }
 
     public ParseState addBranch(final Token token) {
-        return new ParseState(order.addBranch(token), cache, source, offset, token.isIterable() ? iterations.add(new ImmutablePair<>(token, ZERO)) : iterations, references);
+        return new ParseState(prune(order, false).addBranch(token), cache.addBranch(token), source, offset, longOffset, token.isIterable() ? iterations.add(new ImmutablePair<>(token, ZERO)) : iterations, references, referenceSet, definitions, retention, expired);
     }
 
     public ParseState closeBranch(final Token token) {
         if (token.isIterable() && !iterations.head.left.equals(token)) {
             throw new IllegalStateException(format("Cannot close branch for iterable token %s. Current iteration state is for token %s.", token.name, iterations.head.left.name));
         }
-        return new ParseState(order.closeBranch(token), cache, source, offset, token.isIterable() ? iterations.tail : iterations, references);
+        return new ParseState(order.closeBranch(token), cache.closeBranch(token), source, offset, longOffset, token.isIterable() ? iterations.tail : iterations, references, referenceSet, definitions == null ? null : putDefinition(definitions, order.currentBranch().getDefinition()), retention, expired);
     }
 
     public ParseState add(final ParseReference parseReference) {
-        return new ParseState(order, cache, source, offset, iterations, references.add(parseReference));
+        return new ParseState(order, cache, source, offset, longOffset, iterations, references.add(parseReference), referenceSet == null ? null : referenceSet.put(parseReference, parseReference), definitions, retention, expired);
     }
 
     public ParseState add(final ParseValue parseValue) {
-        return new ParseState(order.add(parseValue), cache.add(parseValue), source, offset, iterations, references);
+        final ParseValueCache currentCache = expired == null ? cache : cache.remove(expired);
+        return new ParseState(prune(order, true).add(parseValue), retains(parseValue) ? currentCache.add(parseValue) : currentCache, source, offset, longOffset, iterations, references, referenceSet, definitions == null ? null : putDefinition(definitions, parseValue.getDefinition()), retention, null);
     }
 
     public ParseState createCycle(final ParseReference parseReference) {
-        return new ParseState(order.add(parseReference), cache, source, offset, iterations, references);
+        return new ParseState(prune(order, false).add(parseReference), cache, source, offset, longOffset, iterations, references, referenceSet, definitions == null ? null : putDefinition(definitions, parseReference.getDefinition()), retention, expired);
     }
 
     public ParseState iterate() {
-        return new ParseState(order, cache, source, offset, iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(ONE))), references);
+        if (retention != null && retention.afterIteration(iterations.head.left) != retention) {
+            return finishIteration(retention.afterIteration(iterations.head.left));
+        }
+        return new ParseState(order, cache, source, offset, longOffset, iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(ONE))), references, referenceSet, definitions, retention, expired);
+    }
+
+    // Drops the values of the finished iteration that are only referenced within it, from both order and cache.
+    private ParseState finishIteration(final Retention iterationRetention) {
+        final ParseValue current = order.current().orElse(null);
+        final List<ParseValue> dropped = new ArrayList<>();
+        final ParseGraph prunedOrder = order.pruneAll(iterationRetention, current, dropped);
+        ParseValueCache prunedCache = cache;
+        for (final ParseValue value : dropped) {
+            prunedCache = prunedCache.remove(value);
+        }
+        final ParseValue expiredValue = current != null && !iterationRetention.retains(current) ? current : expired;
+        return new ParseState(prunedOrder, prunedCache, source, offset, longOffset, iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(ONE))), references, referenceSet, definitions, retention, expiredValue);
     }
 
     public Optional<ParseState> seek(final BigInteger newOffset) {
-        return newOffset.compareTo(ZERO) >= 0 ? Optional.of(new ParseState(order, cache, source, newOffset, iterations, references)) : Optional.empty();
+        return newOffset.signum() >= 0 ? Optional.of(new ParseState(order, cache, source, newOffset, toLong(newOffset), iterations, references, referenceSet, definitions, retention, expired)) : Optional.empty();
+    }
+
+    /**
+     * Returns a ParseState at <code>length</code> bytes after the offset of
+     * this one, or empty if that offset is negative. Uses long arithmetic if
+     * possible.
+     */
+    public Optional<ParseState> skip(final BigInteger length) {
+        final long longLength = toLong(checkNotNull(length, "length"));
+        if (longOffset < 0 || longLength < 0) {
+            return seek(offset.add(length));
+        }
+        final long newOffset = longOffset + longLength;
+        return Optional.of(new ParseState(order, cache, source, BigInteger.valueOf(newOffset), newOffset, iterations, references, referenceSet, definitions, retention, expired));
     }
 
     public ParseState withOrder(final ParseGraph order) {
-        return new ParseState(order, NO_CACHE, source, offset, iterations, references);
+        return new ParseState(order, NO_CACHE, source, offset, longOffset, iterations, references, referenceSet, null, retention, expired);
     }
 
     public ParseState withSource(final Source source) {
-        return new ParseState(order, cache, source, ZERO, iterations, references);
+        return new ParseState(order, cache, source, ZERO, 0L, iterations, references, referenceSet, definitions, retention, expired);
+    }
+
+    /**
+     * Returns a ParseState with the items and cycle references added to it
+     * that a parse added to <code>before</code> to produce <code>after</code>,
+     * at the offset of <code>after</code>. Iterations of the current iterable
+     * token that the parse completed are added to its iteration count as
+     * well. The parse must not have depended
+     * on the items in <code>before</code>, see
+     * {@link MemoTable#isContextFree(Token)}.
+     */
+    public ParseState replay(final ParseState before, final ParseState after) {
+        return MemoTable.Outcome.of(checkNotNull(before, "before"), checkNotNull(after, "after")).apply(this);
+    }
+
+    // Adds the items and references, oldest first, that a parse added, which ended at newOffset after completing newIterations of the current iterable token.
+    ParseState append(final ImmutableList<ParseItem> items, final ImmutableList<ParseReference> addedReferences, final BigInteger newOffset, final BigInteger newIterations) {
+        ParseGraph newOrder = order;
+        ParseValueCache newCache = cache;
+        ImmutableMap<String, Token> newDefinitions = definitions;
+        for (ImmutableList<ParseItem> list = items; !list.isEmpty(); list = list.tail) {
+            newOrder = add(newOrder, list.head);
+            newCache = add(newCache, list.head);
+            newDefinitions = newDefinitions == null ? null : putDefinitions(newDefinitions, list.head);
+        }
+        ImmutableList<ParseReference> newReferences = references;
+        ImmutableMap<ParseReference, ParseReference> newReferenceSet = referenceSet;
+        for (ImmutableList<ParseReference> list = addedReferences; !list.isEmpty(); list = list.tail) {
+            newReferences = newReferences.add(list.head);
+            newReferenceSet = newReferenceSet == null ? null : newReferenceSet.put(list.head, list.head);
+        }
+        final ImmutableList<ImmutablePair<Token, BigInteger>> updatedIterations = newIterations.signum() == 0 ? iterations : iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(newIterations)));
+        return new ParseState(newOrder, newCache, source, newOffset, toLong(newOffset), updatedIterations, newReferences, newReferenceSet, newDefinitions, retention, expired);
+    }
+
+    private static ParseGraph add(final ParseGraph order, final ParseItem item) {
+        if (item.isValue()) {
+            return order.add(item.asValue());
+        }
+        if (item.isReference()) {
+            return order.add(item.asReference());
+        }
+        return order.add(item.asGraph());
+    }
+
+    // Puts the definitions of item in the order in which a parse puts them: those of the items in a graph before its own.
+    private static ImmutableMap<String, Token> putDefinitions(final ImmutableMap<String, Token> definitions, final ParseItem item) {
+        if (!item.isGraph()) {
+            return putDefinition(definitions, item.getDefinition());
+        }
+        ImmutableList<ParseItem> children = new ImmutableList<>();
+        for (ParseGraph current = item.asGraph(); !current.isEmpty(); current = current.tail) {
+            children = children.add(current.head);
+        }
+        ImmutableMap<String, Token> result = definitions;
+        for (ImmutableList<ParseItem> list = children; !list.isEmpty(); list = list.tail) {
+            result = putDefinitions(result, list.head);
+        }
+        return putDefinition(result, item.getDefinition());
+    }
+
+    private static ParseValueCache add(final ParseValueCache cache, final ParseItem item) {
+        if (item.isValue()) {
+            return cache.add(item.asValue());
+        }
+        if (!item.isGraph()) {
+            return cache;
+        }
+        final ParseGraph graph = item.asGraph();
+        ImmutableList<ParseItem> children = new ImmutableList<>();
+        for (ParseGraph current = graph; !current.isEmpty(); current = current.tail) {
+            children = children.add(current.head);
+        }
+        ParseValueCache result = cache.addBranch(graph.definition);
+        for (ImmutableList<ParseItem> list = children; !list.isEmpty(); list = list.tail) {
+            result = add(result, list.head);
+        }
+        return result.closeBranch(graph.definition);
+    }
+
+    /**
+     * Returns a ParseState with the <code>order</code> and <code>cache</code>
+     * of this ParseState, that continues at the <code>source</code>,
+     * <code>offset</code>, <code>iterations</code> and
+     * <code>references</code> of <code>parseState</code>.
+     */
+    public ParseState returnTo(final ParseState parseState) {
+        checkNotNull(parseState, "parseState");
+        return new ParseState(order, cache, parseState.source, parseState.offset, parseState.longOffset, parseState.iterations, parseState.references, parseState.referenceSet, definitions, retention, expired);
+    }
+
+    /**
+     * Returns a ParseState that drops the items from <code>order</code> that
+     * <code>retention</code> does not retain, as soon as a newer item is added
+     * next to them.
+     *
+     * @see Retention
+     */
+    public ParseState withRetention(final Retention retention) {
+        return new ParseState(order, cache, source, offset, longOffset, iterations, references, referenceSet, definitions, checkNotNull(retention, "retention").retainsAll() ? null : retention, null);
+    }
+
+    public Retention getRetention() {
+        return retention == null ? Retention.ALL : retention;
+    }
+
+    /**
+     * Returns whether <code>parseReference</code> is one of the
+     * <code>references</code>, in time logarithmic in their number.
+     */
+    public boolean containsReference(final ParseReference parseReference) {
+        if (referenceSet == null) {
+            ImmutableMap<ParseReference, ParseReference> set = new ImmutableMap<>();
+            for (ImmutableList<ParseReference> list = references; !list.isEmpty(); list = list.tail) {
+                set = set.put(list.head, list.head);
+            }
+            referenceSet = set;
+        }
+        return referenceSet.containsKey(parseReference);
+    }
+
+    /**
+     * Returns the definition of the item named <code>name</code> that is
+     * encountered first in a depth-first traversal of <code>order</code>,
+     * starting at its most recently added items. The open branches are
+     * checked directly, the rest of the graph through an index that is built
+     * on first use and maintained as parsing continues.
+     */
+    public Optional<Token> findDefinition(final String name) {
+        ParseGraph graph = order;
+        while (true) {
+            if (graph.getDefinition().name.equals(name)) {
+                return Optional.of(graph.getDefinition());
+            }
+            if (!graph.branched) {
+                break;
+            }
+            graph = graph.head.asGraph();
+        }
+        if (definitions == null) {
+            definitions = buildDefinitions(order);
+        }
+        return Optional.ofNullable(definitions.get(name));
+    }
+
+    private static ImmutableMap<String, Token> buildDefinitions(final ParseGraph order) {
+        ImmutableMap<String, Token> definitions = new ImmutableMap<>();
+        ImmutableList<ParseItem> items = ImmutableList.create(order);
+        while (!items.isEmpty()) {
+            final ParseItem item = items.head;
+            items = items.tail;
+            if (!definitions.containsKey(item.getDefinition().name)) {
+                definitions = definitions.put(item.getDefinition().name, item.getDefinition());
+            }
+            if (item.isGraph() && !item.asGraph().isEmpty()) {
+                items = items.add(item.asGraph().tail).add(item.asGraph().head);
+            }
+        }
+        return definitions;
+    }
+
+    private static ImmutableMap<String, Token> putDefinition(final ImmutableMap<String, Token> definitions, final Token definition) {
+        return definition.name.isEmpty() ? definitions : definitions.put(definition.name, definition);
+    }
+
+    // The current value of order is kept until a newer value is added, because expressions such as Self refer to it.
+    private ParseGraph prune(final ParseGraph order, final boolean addsValue) {
+        if (retention == null) {
+            return order;
+        }
+        final ParseValue current = order.current().orElse(null);
+        if (!addsValue) {
+            return order.prune(retention, current);
+        }
+        return (current == null || current != expired && retention.retains(current) ? order : order.remove(current, retention)).prune(retention, null);
+    }
+
+    private boolean retains(final ParseValue parseValue) {
+        return retention == null || retention.retains(parseValue);
     }
 
     public Optional<Slice> slice(final BigInteger length) {
-        return createFromSource(source, offset, length);
+        return createFromSource(source, offset, longOffset, length);
     }
 
     @Override
@@ -118,12 +360,14 @@ public class ParseState extends ImmutableObject {
             && Objects.equals(offset, ((ParseState)obj).offset)
             && Objects.equals(source, ((ParseState)obj).source)
             && Objects.equals(iterations, ((ParseState)obj).iterations)
-            && Objects.equals(references, ((ParseState)obj).references);
+            && Objects.equals(references, ((ParseState)obj).references)
+            && Objects.equals(retention, ((ParseState)obj).retention)
+            && Objects.equals(expired, ((ParseState)obj).expired);
     }
 
     @Override
     public int immutableHashCode() {
-        return Objects.hash(getClass(), order, cache, offset, source, iterations, references);
+        return Objects.hash(getClass(), order, cache, offset, source, iterations, references, retention, expired);
     }
 
 }
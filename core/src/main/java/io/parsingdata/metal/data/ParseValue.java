@@ -30,15 +30,30 @@ public class ParseValue extends CoreValue implements ParseItem {
 
     public final String name;
     public final Token definition;
+    final String shortName; // The part of name after the last separator, used by ParseValueCache.
 
     public ParseValue(final String name, final Token definition, final Slice slice, final Encoding encoding) {
         super(slice, encoding);
         this.name = checkNotEmpty(name, "name");
         this.definition = checkNotNull(definition, "definition");
+        this.shortName = name.substring(name.lastIndexOf(Token.SEPARATOR) + 1);
+    }
+
+    /**
+     * Creates a value named after <code>scope</code>, sharing its path and
+     * short name instead of deriving them from a String.
+     */
+    public ParseValue(final ScopePath scope, final Token definition, final Slice slice, final Encoding encoding) {
+        super(slice, encoding);
+        this.name = checkNotEmpty(checkNotNull(scope, "scope").path, "name");
+        this.definition = checkNotNull(definition, "definition");
+        this.shortName = scope.shortName;
     }
 
     public boolean matches(final String name) {
-        return this.name.equals(name) || this.name.endsWith(Token.SEPARATOR + name);
+        // Equivalent to this.name.equals(name) || this.name.endsWith(Token.SEPARATOR + name), without building a String.
+        return this.name.endsWith(name)
+            && (this.name.length() == name.length() || this.name.startsWith(Token.SEPARATOR, this.name.length() - name.length() - Token.SEPARATOR.length()));
     }
 
     public boolean matches(final Token definition) {
@@ -1,25 +1,36 @@
 package io.parsingdata.metal.data;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
-import static io.parsingdata.metal.data.Selection.NO_LIMIT;
+import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.data.Selection.reverse;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.expression.value.Value;
 import io.parsingdata.metal.token.Token;
 
+/**
+ * An index of all {@link ParseValue}s added to the parse graph, by name and
+ * by definition.
+ * <p>
+ * Every value is stored together with its sequence number, the amount of
+ * values added before it. This allows results for multiple names or
+ * definitions to be merged in the order they were added and results to be
+ * restricted to the values added inside an open scope, by tracking the
+ * sequence number at which each open scope delimiting branch was added.
+ */
 public class ParseValueCache {
 
-    public static final ParseValueCache NO_CACHE = new ParseValueCache(null);
+    public static final ParseValueCache NO_CACHE = new ParseValueCache(null, null, null, 0);
 
-    private final Map<String, ImmutableList<ParseValue>> cache;
+    private final ImmutableMap<String, ImmutableList<ImmutablePair<ParseValue, Long>>> cache;
+    private final ImmutableMap<Token, ImmutableList<ImmutablePair<ParseValue, Long>>> definitions;
+    private final ImmutableList<Long> scopes;
+    private final long size;
 
     /**
      * Start a cache that keeps track of values added to the parse graph.
@@ -27,42 +38,295 @@ public class ParseValueCache {
      * In case no caching is desired, {@link #NO_CACHE} should be used instead.
      */
     public ParseValueCache() {
-        this(new HashMap<>());
+        this(new ImmutableMap<>(), new ImmutableMap<>(), new ImmutableList<>(), 0);
     }
 
     // For internal use only. It is private to avoid setting the cache to null. The NO_CACHE constant should be used instead.
-    private ParseValueCache(final Map<String, ImmutableList<ParseValue>> cache) {
+    private ParseValueCache(final ImmutableMap<String, ImmutableList<ImmutablePair<ParseValue, Long>>> cache, final ImmutableMap<Token, ImmutableList<ImmutablePair<ParseValue, Long>>> definitions, final ImmutableList<Long> scopes, final long size) {
         this.cache = cache;
+        this.definitions = definitions;
+        this.scopes = scopes;
+        this.size = size;
     }
 
-    public Optional<ImmutableList<Value>> find(final String scopeName, int limit) {
+    public Optional<ImmutableList<Value>> find(final String scopeName, final int limit) {
+        return findByName(ImmutableList.create(checkNotNull(scopeName, "scopeName")), limit, 0, 0);
+    }
+
+    /**
+     * Find the values that match any of the provided names, most recently
+     * added first.
+     *
+     * @param scopeNames the names to match, see {@link ParseValue#matches(String)}
+     * @param limit the maximum amount of values to return, or {@link Selection#NO_LIMIT}
+     * @param requestedScope the scope to restrict the search to
+     * @param scopeDepth the scope depth of the parse graph the values were added to
+     * @return the matching values, or empty if this cache is unable to answer the query
+     */
+    public Optional<ImmutableList<Value>> findByName(final ImmutableList<String> scopeNames, final int limit, final int requestedScope, final int scopeDepth) {
+        if (this == NO_CACHE) {
+            return Optional.empty();
+        }
+        return find(nameSearchLists(scopeNames), value -> matchesAny(value, scopeNames), limit, requestedScope, scopeDepth);
+    }
+
+    /**
+     * Find the value at the provided position in the result of
+     * {@link #findByName(ImmutableList, int, int, int)}, without building
+     * the complete result.
+     *
+     * @param scopeNames the names to match, see {@link ParseValue#matches(String)}
+     * @param index the position of the value, counting from the most recently
+     *              added value when non-negative (<code>0</code> is the last
+     *              value) and from the first added value when negative
+     *              (<code>-1</code> is the first value)
+     * @param limit the maximum amount of values to consider, or {@link Selection#NO_LIMIT}
+     * @param requestedScope the scope to restrict the search to
+     * @param scopeDepth the scope depth of the parse graph the values were added to
+     * @return a list containing the value or an empty list if there is no
+     *         value at the provided position, or empty if this cache is
+     *         unable to answer the query
+     */
+    public Optional<ImmutableList<Value>> findNthByName(final ImmutableList<String> scopeNames, final long index, final int limit, final int requestedScope, final int scopeDepth) {
+        if (this == NO_CACHE) {
+            return Optional.empty();
+        }
+        if (scopeNames.size == 1 && index >= 0) {
+            return findNthByName(scopeNames.head, index, limit, requestedScope, scopeDepth);
+        }
+        return findNth(nameSearchLists(scopeNames), value -> matchesAny(value, scopeNames), index, limit, requestedScope, scopeDepth);
+    }
+
+    // Walks the values of a single name directly, since there are no search lists to merge.
+    private Optional<ImmutableList<Value>> findNthByName(final String scopeName, final long index, final int limit, final int requestedScope, final int scopeDepth) {
+        if (!hasScope(requestedScope, scopeDepth)) {
+            return Optional.empty();
+        }
+        if (limit >= 0 && index >= limit) {
+            return Optional.of(new ImmutableList<>());
+        }
+        final long start = scopeStart(requestedScope, scopeDepth);
+        long remaining = index;
+        for (ImmutableList<ImmutablePair<ParseValue, Long>> list = cache.get(shortName(scopeName)); list != null && !list.isEmpty() && list.head.right >= start; list = list.tail) {
+            if (list.head.left.matches(scopeName)) {
+                if (remaining == 0) {
+                    return Optional.of(ImmutableList.create(list.head.left));
+                }
+                remaining--;
+            }
+        }
+        return Optional.of(new ImmutableList<>());
+    }
+
+    private List<ImmutableList<ImmutablePair<ParseValue, Long>>> nameSearchLists(final ImmutableList<String> scopeNames) {
+        final List<ImmutableList<ImmutablePair<ParseValue, Long>>> searchLists = new ArrayList<>();
+        final List<String> shortNames = new ArrayList<>();
+        for (ImmutableList<String> names = scopeNames; !names.isEmpty(); names = names.tail) {
+            final String shortName = shortName(names.head);
+            if (!shortNames.contains(shortName)) {
+                shortNames.add(shortName);
+                searchLists.add(cache.getOrDefault(shortName, new ImmutableList<>()));
+            }
+        }
+        return searchLists;
+    }
+
+    /**
+     * Find the values that have any of the provided definitions, most
+     * recently added first.
+     *
+     * @param tokens the definitions to match, see {@link ParseValue#matches(Token)}
+     * @param limit the maximum amount of values to return, or {@link Selection#NO_LIMIT}
+     * @param requestedScope the scope to restrict the search to
+     * @param scopeDepth the scope depth of the parse graph the values were added to
+     * @return the matching values, or empty if this cache is unable to answer the query
+     */
+    public Optional<ImmutableList<Value>> findByDefinition(final ImmutableList<Token> tokens, final int limit, final int requestedScope, final int scopeDepth) {
         if (this == NO_CACHE) {
             return Optional.empty();
         }
-        final ImmutableList<Value> result = find(cache.getOrDefault(shortName(scopeName), new ImmutableList<>()), scopeName, limit, new ImmutableList<>()).computeResult();
+        return find(definitionSearchLists(tokens), value -> true, limit, requestedScope, scopeDepth);
+    }
+
+    /**
+     * Find the value at the provided position in the result of
+     * {@link #findByDefinition(ImmutableList, int, int, int)}, without
+     * building the complete result.
+     *
+     * @param tokens the definitions to match, see {@link ParseValue#matches(Token)}
+     * @param index the position of the value, see {@link #findNthByName(ImmutableList, long, int, int, int)}
+     * @param limit the maximum amount of values to consider, or {@link Selection#NO_LIMIT}
+     * @param requestedScope the scope to restrict the search to
+     * @param scopeDepth the scope depth of the parse graph the values were added to
+     * @return a list containing the value or an empty list if there is no
+     *         value at the provided position, or empty if this cache is
+     *         unable to answer the query
+     */
+    public Optional<ImmutableList<Value>> findNthByDefinition(final ImmutableList<Token> tokens, final long index, final int limit, final int requestedScope, final int scopeDepth) {
+        if (this == NO_CACHE) {
+            return Optional.empty();
+        }
+        return findNth(definitionSearchLists(tokens), value -> true, index, limit, requestedScope, scopeDepth);
+    }
+
+    private List<ImmutableList<ImmutablePair<ParseValue, Long>>> definitionSearchLists(final ImmutableList<Token> tokens) {
+        final List<ImmutableList<ImmutablePair<ParseValue, Long>>> searchLists = new ArrayList<>();
+        final List<Token> distinctTokens = new ArrayList<>();
+        for (ImmutableList<Token> remaining = tokens; !remaining.isEmpty(); remaining = remaining.tail) {
+            if (!distinctTokens.contains(remaining.head)) {
+                distinctTokens.add(remaining.head);
+                searchLists.add(definitions.getOrDefault(remaining.head, new ImmutableList<>()));
+            }
+        }
+        return searchLists;
+    }
+
+    private Optional<ImmutableList<Value>> find(final List<ImmutableList<ImmutablePair<ParseValue, Long>>> searchLists, final Predicate<ParseValue> predicate, final int limit, final int requestedScope, final int scopeDepth) {
+        if (!hasScope(requestedScope, scopeDepth)) {
+            return Optional.empty();
+        }
+        final long start = scopeStart(requestedScope, scopeDepth);
+        ImmutableList<Value> result = new ImmutableList<>();
+        ParseValue value;
+        while (result.size != limit && (value = next(searchLists, predicate, start)) != null) {
+            result = result.add(value);
+        }
         return Optional.of(reverse(result));
     }
 
-    private Trampoline<ImmutableList<Value>> find(final ImmutableList<ParseValue> searchList, final String scopeName, final int limit, final ImmutableList<Value> result) {
-        if (searchList.isEmpty() || (limit != NO_LIMIT && result.size == limit)) {
-            return complete(() -> result);
+    private Optional<ImmutableList<Value>> findNth(final List<ImmutableList<ImmutablePair<ParseValue, Long>>> searchLists, final Predicate<ParseValue> predicate, final long index, final int limit, final int requestedScope, final int scopeDepth) {
+        if (!hasScope(requestedScope, scopeDepth)) {
+            return Optional.empty();
+        }
+        final long start = scopeStart(requestedScope, scopeDepth);
+        final long maximum = limit < 0 ? Long.MAX_VALUE : limit;
+        long position = index;
+        if (index < 0) {
+            long count = 0;
+            final List<ImmutableList<ImmutablePair<ParseValue, Long>>> countLists = new ArrayList<>(searchLists);
+            while (count < maximum && next(countLists, predicate, start) != null) {
+                count++;
+            }
+            position = count + index;
+        }
+        if (position < 0 || position >= maximum) {
+            return Optional.of(new ImmutableList<>());
+        }
+        ParseValue value = next(searchLists, predicate, start);
+        for (long i = 0; i < position && value != null; i++) {
+            value = next(searchLists, predicate, start);
+        }
+        return Optional.of(value == null ? new ImmutableList<>() : ImmutableList.create(value));
+    }
+
+    /**
+     * Removes the most recently added value from the provided lists and
+     * returns it if it matches the predicate. Values added before
+     * <code>start</code> are ignored. Returns <code>null</code> when no
+     * matching values remain.
+     */
+    private static ParseValue next(final List<ImmutableList<ImmutablePair<ParseValue, Long>>> searchLists, final Predicate<ParseValue> predicate, final long start) {
+        while (true) {
+            int newest = -1;
+            for (int i = 0; i < searchLists.size(); i++) {
+                final ImmutableList<ImmutablePair<ParseValue, Long>> searchList = searchLists.get(i);
+                if (!searchList.isEmpty() && searchList.head.right >= start && (newest == -1 || searchList.head.right > searchLists.get(newest).head.right)) {
+                    newest = i;
+                }
+            }
+            if (newest == -1) {
+                return null;
+            }
+            final ParseValue value = searchLists.get(newest).head.left;
+            searchLists.set(newest, searchLists.get(newest).tail);
+            if (predicate.test(value)) {
+                return value;
+            }
+        }
+    }
+
+    private boolean hasScope(final int requestedScope, final int scopeDepth) {
+        // The scopes of this cache must correspond to those of the parse graph.
+        return requestedScope >= scopeDepth || scopes.size == scopeDepth;
+    }
+
+    private long scopeStart(final int requestedScope, final int scopeDepth) {
+        if (requestedScope >= scopeDepth) {
+            return 0;
         }
-        final ParseValue head = searchList.head;
-        if (head.matches(scopeName)) {
-            return intermediate(() -> find(searchList.tail, scopeName, limit, result.add(head)));
+        ImmutableList<Long> scope = scopes;
+        for (int i = 0; i < requestedScope; i++) {
+            scope = scope.tail;
         }
-        return intermediate(() -> find(searchList.tail, scopeName, limit, result));
+        return scope.head;
+    }
+
+    private static boolean matchesAny(final ParseValue value, final ImmutableList<String> scopeNames) {
+        for (ImmutableList<String> names = scopeNames; !names.isEmpty(); names = names.tail) {
+            if (value.matches(names.head)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public ParseValueCache add(final ParseValue value) {
         if (this == NO_CACHE) {
             return NO_CACHE;
         }
-        final String name = shortName(value.name);
-        final Map<String, ImmutableList<ParseValue>> stringImmutableListHashMap = new HashMap<>(cache);
-        stringImmutableListHashMap.computeIfAbsent(name, pattern -> new ImmutableList<>());
-        stringImmutableListHashMap.computeIfPresent(name, (pattern, valueImmutableList) -> valueImmutableList.add(value));
-        return new ParseValueCache(stringImmutableListHashMap);
+        final String name = value.shortName;
+        final ImmutablePair<ParseValue, Long> entry = new ImmutablePair<>(value, size);
+        return new ParseValueCache(cache.put(name, cache.getOrDefault(name, new ImmutableList<>()).add(entry)),
+                                   definitions.put(value.definition, definitions.getOrDefault(value.definition, new ImmutableList<>()).add(entry)),
+                                   scopes,
+                                   size + 1);
+    }
+
+    /**
+     * Removes a value that was dropped from the parse graph. The value is
+     * only removed if no other value with the same name or definition was
+     * added after it, so values must be removed most recently added first.
+     *
+     * @param value the value to remove
+     * @return the cache without the value
+     */
+    public ParseValueCache remove(final ParseValue value) {
+        if (this == NO_CACHE) {
+            return NO_CACHE;
+        }
+        final ImmutableList<ImmutablePair<ParseValue, Long>> named = cache.getOrDefault(value.shortName, new ImmutableList<>());
+        final ImmutableList<ImmutablePair<ParseValue, Long>> defined = definitions.getOrDefault(value.definition, new ImmutableList<>());
+        final boolean newestNamed = !named.isEmpty() && named.head.left == value;
+        final boolean newestDefined = !defined.isEmpty() && defined.head.left == value;
+        if (!newestNamed && !newestDefined) {
+            return this;
+        }
+        return new ParseValueCache(newestNamed ? cache.put(value.shortName, named.tail) : cache,
+                                   newestDefined ? definitions.put(value.definition, defined.tail) : definitions,
+                                   scopes,
+                                   size);
+    }
+
+    /**
+     * Track the opening of a branch in the parse graph. If the token is a
+     * scope delimiter, all values added until the matching call to
+     * {@link #closeBranch(Token)} are considered to be inside its scope.
+     *
+     * @param token the definition of the branch
+     * @return the cache with the new branch opened
+     */
+    public ParseValueCache addBranch(final Token token) {
+        if (this == NO_CACHE || !token.isScopeDelimiter()) {
+            return this;
+        }
+        return new ParseValueCache(cache, definitions, scopes.add(size), size);
+    }
+
+    public ParseValueCache closeBranch(final Token token) {
+        if (this == NO_CACHE || !token.isScopeDelimiter() || scopes.isEmpty()) {
+            return this;
+        }
+        return new ParseValueCache(cache, definitions, scopes.tail, size);
     }
 
     private static String shortName(final String name) {
@@ -74,17 +338,20 @@ public class ParseValueCache {
         if (this == NO_CACHE) {
             return "no-cache";
         }
-        return "cache:size=" + cache.size();
+        return "cache:size=" + cache.size;
     }
 
     @Override
     public boolean equals(final Object obj) {
         return Util.notNullAndSameClass(this, obj)
-            && Objects.equals(cache, ((ParseValueCache)obj).cache);
+            && Objects.equals(cache, ((ParseValueCache)obj).cache)
+            && Objects.equals(definitions, ((ParseValueCache)obj).definitions)
+            && Objects.equals(scopes, ((ParseValueCache)obj).scopes)
+            && size == ((ParseValueCache)obj).size;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(cache);
+        return Objects.hash(cache, definitions, scopes, size);
     }
 }
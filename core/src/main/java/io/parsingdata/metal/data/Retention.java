@@ -0,0 +1,400 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.parsingdata.metal.expression.Expression;
+import io.parsingdata.metal.expression.True;
+import io.parsingdata.metal.expression.comparison.ComparisonExpression;
+import io.parsingdata.metal.expression.logical.And;
+import io.parsingdata.metal.expression.logical.BinaryLogicalExpression;
+import io.parsingdata.metal.expression.logical.Not;
+import io.parsingdata.metal.expression.logical.Or;
+import io.parsingdata.metal.expression.value.BinaryValueExpression;
+import io.parsingdata.metal.expression.value.Bytes;
+import io.parsingdata.metal.expression.value.Const;
+import io.parsingdata.metal.expression.value.Elvis;
+import io.parsingdata.metal.expression.value.Expand;
+import io.parsingdata.metal.expression.value.Fold;
+import io.parsingdata.metal.expression.value.FoldLeft;
+import io.parsingdata.metal.expression.value.FoldRight;
+import io.parsingdata.metal.expression.value.FoldCat;
+import io.parsingdata.metal.expression.value.Reverse;
+import io.parsingdata.metal.expression.value.UnaryValueExpression;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.expression.value.reference.Count;
+import io.parsingdata.metal.expression.value.reference.CurrentIteration;
+import io.parsingdata.metal.expression.value.reference.CurrentOffset;
+import io.parsingdata.metal.expression.value.reference.First;
+import io.parsingdata.metal.expression.value.reference.Last;
+import io.parsingdata.metal.expression.value.reference.Nth;
+import io.parsingdata.metal.expression.value.reference.Offset;
+import io.parsingdata.metal.expression.value.reference.Ref;
+import io.parsingdata.metal.expression.value.reference.Self;
+import io.parsingdata.metal.token.Cho;
+import io.parsingdata.metal.token.Def;
+import io.parsingdata.metal.token.DefUntil;
+import io.parsingdata.metal.token.IterableToken;
+import io.parsingdata.metal.token.ParCho;
+import io.parsingdata.metal.token.ParRep;
+import io.parsingdata.metal.token.ParRepN;
+import io.parsingdata.metal.token.ParSub;
+import io.parsingdata.metal.token.Post;
+import io.parsingdata.metal.token.Pre;
+import io.parsingdata.metal.token.Rep;
+import io.parsingdata.metal.token.RepN;
+import io.parsingdata.metal.token.Seq;
+import io.parsingdata.metal.token.Span;
+import io.parsingdata.metal.token.Sub;
+import io.parsingdata.metal.token.Tie;
+import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.token.TokenRef;
+import io.parsingdata.metal.token.While;
+
+/**
+ * Determines which items a {@link ParseState} must keep in its
+ * {@link ParseGraph} for a format to be parsed correctly.
+ * <p>
+ * A Retention is created from a format by {@link #of(Token)}, which collects
+ * the names and definitions of all {@link Ref}s and the names of all
+ * {@link TokenRef}s in it. A {@link ParseState} that is given a Retention
+ * through {@link ParseState#withRetention(Retention)} drops every other
+ * value, cycle reference and empty branch from its graph as soon as a newer
+ * item is added next to it. Only the most recently added item of each
+ * branch is kept regardless, so that expressions such as {@link Self} still
+ * see the value just parsed. The heap used by parsing a long repetition
+ * then no longer grows with the input, as long as the format does not refer
+ * to the repeated values.
+ * <p>
+ * Names that are only referenced within an iteration of a {@link Rep},
+ * {@link RepN} or {@link While} over a {@link Seq}, such as the length of a
+ * chunk in <code>last(ref("length"))</code>, are dropped once the iteration
+ * has finished. Names referenced in any other way, such as through
+ * <code>count(ref("length"))</code>, are kept for the rest of the parse.
+ * <p>
+ * Consumers observe the dropped values through {@link
+ * io.parsingdata.metal.data.callback.Callbacks}, which receive every value
+ * as the current value of the ParseState after its {@link Def}. The graph
+ * that results from the parse only contains the retained items.
+ * <p>
+ * The analysis is conservative: if a format contains a token or expression
+ * it does not know, {@link #ALL} is returned, which retains everything.
+ * Reducers of {@link Fold}s must only combine their operands.
+ */
+public class Retention {
+
+    public static final Retention ALL = new Retention(null, Collections.emptySet(), Collections.emptySet(), Collections.emptyMap());
+
+    private final Map<String, Set<String>> names; // Referenced names by their short name, null if everything is retained.
+    private final Set<Token> definitions;
+    private final Set<String> tokenNames;
+    private final Map<Token, Retention> iterationRetentions; // By identity of the IterableToken.
+
+    private Retention(final Map<String, Set<String>> names, final Set<Token> definitions, final Set<String> tokenNames, final Map<Token, Retention> iterationRetentions) {
+        this.names = names;
+        this.definitions = definitions;
+        this.tokenNames = tokenNames;
+        this.iterationRetentions = iterationRetentions;
+    }
+
+    /**
+     * @param format the token that will be parsed
+     * @return the Retention that keeps the items <code>format</code> refers to, or {@link #ALL}
+     */
+    public static Retention of(final Token format) {
+        final Analysis analysis = new Analysis();
+        if (!analysis.collect(checkNotNull(format, "format"))) {
+            return ALL;
+        }
+        final Map<Token, Retention> iterationRetentions = new IdentityHashMap<>();
+        if (analysis.tokenNames.isEmpty()) {
+            for (final IterableToken iterable : analysis.iterables) {
+                final Set<String> remaining = new HashSet<>(analysis.names);
+                if (remaining.removeAll(iterationNames(format, (Seq) iterable.token, analysis))) {
+                    iterationRetentions.put(iterable, new Retention(shortNames(remaining), analysis.definitions, analysis.tokenNames, Collections.emptyMap()));
+                }
+            }
+        }
+        return new Retention(shortNames(analysis.names), analysis.definitions, analysis.tokenNames, iterationRetentions);
+    }
+
+    /*
+     * A name is only referenced within an iteration if the iterated Seq
+     * unconditionally defines it and all references to it are in the tokens
+     * that follow its definition and only evaluate to the most recent value.
+     * Those references then never observe values of earlier iterations.
+     */
+    private static Set<String> iterationNames(final Token format, final Seq body, final Analysis analysis) {
+        final Set<String> iterationNames = new HashSet<>();
+        int count = 1;
+        for (ImmutableList<Token> list = body.tokens; !list.isEmpty(); list = list.tail, count++) {
+            final String name = definedName(list.head);
+            if (name != null && !name.contains(Token.SEPARATOR) && analysis.names.contains(name) && !analysis.allValueNames.contains(name)) {
+                final Analysis outside = new Analysis(body, count);
+                outside.collect(format);
+                if (!outside.names.contains(name)) {
+                    iterationNames.add(name);
+                }
+            }
+        }
+        return iterationNames;
+    }
+
+    private static String definedName(final Token token) {
+        if (token.getClass() == Post.class) {
+            return definedName(((Post) token).token);
+        }
+        return token.getClass() == Def.class || token.getClass() == DefUntil.class || token.getClass() == Span.class ? token.name : null;
+    }
+
+    private static Map<String, Set<String>> shortNames(final Set<String> fullNames) {
+        final Map<String, Set<String>> names = new HashMap<>();
+        for (final String name : fullNames) {
+            names.computeIfAbsent(name.substring(name.lastIndexOf(Token.SEPARATOR) + 1), key -> new HashSet<>()).add(name);
+        }
+        return names;
+    }
+
+    public boolean retainsAll() {
+        return names == null;
+    }
+
+    public boolean retains(final ParseValue value) {
+        if (retainsAll() || definitions.contains(value.definition) || tokenNames.contains(value.definition.name)) {
+            return true;
+        }
+        final Set<String> candidates = names.get(value.shortName);
+        if (candidates != null) {
+            for (final String name : candidates) {
+                if (value.matches(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param iterable the {@link IterableToken} of which an iteration has finished
+     * @return the Retention that determines which items of the finished
+     * iteration are kept, without the names that are only referenced within
+     * an iteration of <code>iterable</code>
+     */
+    public Retention afterIteration(final Token iterable) {
+        return iterationRetentions.getOrDefault(iterable, this);
+    }
+
+    /**
+     * @param definition the definition of a branch that contains no retained items
+     * @return whether the branch must be kept, because a {@link TokenRef} may look it up
+     */
+    public boolean retains(final Token definition) {
+        return retainsAll() || tokenNames.contains(definition.name);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + (retainsAll() ? "(ALL)" : "(" + names.values() + "," + definitions + "," + tokenNames + ")");
+    }
+
+    private static final class Analysis {
+
+        private final Set<String> names = new HashSet<>();
+        private final Set<Token> definitions = new HashSet<>();
+        private final Set<String> tokenNames = new HashSet<>();
+        private final Set<String> allValueNames = new HashSet<>(); // Referenced names of which more than the most recent value may be used.
+        private final List<IterableToken> iterables = new ArrayList<>(); // Iterating a Seq, so candidates for iteration names.
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Seq region; // Only the first regionSize tokens of this Seq are collected.
+        private final int regionSize;
+
+        Analysis() {
+            this(null, 0);
+        }
+
+        Analysis(final Seq region, final int regionSize) {
+            this.region = region;
+            this.regionSize = regionSize;
+        }
+
+        boolean collect(final Token token) {
+            if (!visited.add(token)) {
+                return true;
+            }
+            final Class<?> type = token.getClass();
+            if (type == Def.class) {
+                return collectValue(((Def) token).size);
+            }
+            if (type == DefUntil.class) {
+                final DefUntil defUntil = (DefUntil) token;
+                return collectValue(defUntil.initialSize) && collectValue(defUntil.stepSize) && collectValue(defUntil.maxSize) && collect(defUntil.terminator);
+            }
+            if (type == Span.class) {
+                return collectPredicate(((Span) token).predicate);
+            }
+            if (type == Post.class) {
+                return collect(((Post) token).token) && collectPredicate(((Post) token).predicate);
+            }
+            if (type == Pre.class) {
+                return collect(((Pre) token).token) && collectPredicate(((Pre) token).predicate);
+            }
+            if (type == Seq.class) {
+                return collect(((Seq) token).tokens, token == region ? regionSize : Integer.MAX_VALUE);
+            }
+            if (type == Cho.class || type == ParCho.class) {
+                return collect(((Cho) token).tokens, Integer.MAX_VALUE);
+            }
+            if (type == Rep.class || type == ParRep.class || type == RepN.class || type == ParRepN.class || type == While.class) {
+                if (((IterableToken) token).token.getClass() == Seq.class) {
+                    iterables.add((IterableToken) token);
+                }
+                return collect(((IterableToken) token).token)
+                    && (!(token instanceof RepN) || collectValue(((RepN) token).n))
+                    && (type != While.class || collectPredicate(((While) token).predicate));
+            }
+            if (type == Sub.class || type == ParSub.class) {
+                return collect(((Sub) token).token) && collectValue(((Sub) token).offsets);
+            }
+            if (type == Tie.class) {
+                return collect(((Tie) token).token) && collectValue(((Tie) token).dataExpression);
+            }
+            if (type == TokenRef.class) {
+                tokenNames.add(((TokenRef) token).referenceName);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean collect(final ImmutableList<Token> tokens, final int count) {
+            int remaining = count;
+            for (ImmutableList<Token> list = tokens; !list.isEmpty() && remaining > 0; list = list.tail, remaining--) {
+                if (!collect(list.head)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean collectPredicate(final Expression expression) {
+            if (expression == null || !visited.add(expression)) {
+                return true;
+            }
+            final Class<?> type = expression.getClass();
+            if (type == True.class) {
+                return true;
+            }
+            if (type == And.class || type == Or.class) {
+                return collectPredicate(((BinaryLogicalExpression) expression).left) && collectPredicate(((BinaryLogicalExpression) expression).right);
+            }
+            if (type == Not.class) {
+                return collectPredicate(((Not) expression).operand);
+            }
+            if (MemoTable.COMPARISON_EXPRESSIONS.contains(type)) {
+                return collectValue(((ComparisonExpression) expression).value) && collectValue(((ComparisonExpression) expression).predicate);
+            }
+            return false;
+        }
+
+        private boolean collectValue(final ValueExpression expression) {
+            if (expression == null || !visited.add(expression)) {
+                return true;
+            }
+            final Class<?> type = expression.getClass();
+            if (type == Const.class || type == CurrentOffset.class || type == Self.class) {
+                return true;
+            }
+            if (type == Ref.NameRef.class) {
+                return collectName((Ref.NameRef) expression, isOne(((Ref.NameRef) expression).limit));
+            }
+            if (type == Ref.DefinitionRef.class) {
+                for (ImmutableList<Token> list = ((Ref.DefinitionRef) expression).references; !list.isEmpty(); list = list.tail) {
+                    definitions.add(list.head);
+                }
+                return collectValue(((Ref<?>) expression).limit) && collectValue(((Ref<?>) expression).scope);
+            }
+            if (MemoTable.PURE_VALUE_EXPRESSIONS.contains(type) || type == Offset.class) {
+                if (expression instanceof BinaryValueExpression) {
+                    return collectValue(((BinaryValueExpression) expression).left) && collectValue(((BinaryValueExpression) expression).right);
+                }
+                return collectValue(((UnaryValueExpression) expression).operand);
+            }
+            if (type == Elvis.class) {
+                return collectValue(((Elvis) expression).left) && collectValue(((Elvis) expression).right);
+            }
+            if (type == Expand.class) {
+                return collectValue(((Expand) expression).bases) && collectValue(((Expand) expression).count);
+            }
+            if (type == FoldLeft.class || type == FoldRight.class) {
+                return collectValue(((Fold) expression).values) && collectValue(((Fold) expression).initial);
+            }
+            if (type == FoldCat.class) {
+                return collectValue(((FoldCat) expression).operand);
+            }
+            if (type == Reverse.class) {
+                return collectValue(((Reverse) expression).values);
+            }
+            if (type == Bytes.class) {
+                return collectValue(((Bytes) expression).operand);
+            }
+            if (type == Count.class) {
+                return collectValue(((Count) expression).operand);
+            }
+            if (type == First.class) {
+                return collectValue(((First) expression).operand);
+            }
+            if (type == Last.class) {
+                final ValueExpression operand = ((Last) expression).operand;
+                return operand.getClass() == Ref.NameRef.class ? collectName((Ref.NameRef) operand, true) : collectValue(operand);
+            }
+            if (type == Nth.class) {
+                return collectValue(((Nth) expression).values) && collectValue(((Nth) expression).indices);
+            }
+            if (type == CurrentIteration.class) {
+                return collectValue(((CurrentIteration) expression).level);
+            }
+            return false;
+        }
+
+        private boolean collectName(final Ref.NameRef nameRef, final boolean mostRecent) {
+            for (ImmutableList<String> list = nameRef.references; !list.isEmpty(); list = list.tail) {
+                names.add(list.head);
+                if (!mostRecent || nameRef.references.size != 1 || nameRef.scope != null) {
+                    allValueNames.add(list.head);
+                }
+            }
+            return collectValue(nameRef.limit) && collectValue(nameRef.scope);
+        }
+
+        private static boolean isOne(final ValueExpression expression) {
+            return expression instanceof Const && ((Const) expression).value.asNumeric().equals(BigInteger.ONE);
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.token.Token.SEPARATOR;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The scope in which a token is parsed, as a node in a tree of names.
+ * <p>
+ * A ScopePath holds the dotted <code>path</code> used as the name of the
+ * {@link ParseValue}s created in it. Extending a ScopePath with the name of a
+ * token returns the same child node every time it is called with that name,
+ * so the path of a scope is built once instead of each time a token is
+ * parsed, and all values in a scope share the same name instance.
+ * <p>
+ * A tree is started for every {@link Environment} that is created with a
+ * scope and is only reachable from the environments and values that use it.
+ */
+public class ScopePath {
+
+    public final String path;
+    public final String shortName; // The part of path after the last separator, used to index values by name.
+    private final ConcurrentHashMap<String, ScopePath> children = new ConcurrentHashMap<>();
+
+    private ScopePath(final String path) {
+        this.path = checkNotNull(path, "path");
+        this.shortName = path.substring(path.lastIndexOf(SEPARATOR) + 1);
+    }
+
+    public static ScopePath root(final String path) {
+        return new ScopePath(path);
+    }
+
+    public ScopePath extend(final String name) {
+        if (name.isEmpty()) {
+            return this;
+        }
+        return children.computeIfAbsent(name, key -> new ScopePath(path.isEmpty() ? key : path + SEPARATOR + key));
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
@@ -22,6 +22,8 @@ import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -45,7 +47,7 @@ public final class Selection {
             return complete(() -> Optional.of(head));
         }
         if (head.isGraph()) {
-            final ParseValue value = getLowestOffsetValue(ImmutableList.create(head.asGraph()), null).computeResult();
+            final ParseValue value = getLowestOffsetValue(head.asGraph());
             if (value != null && matchesLocation(value, offset, source)) {
                 return complete(() -> Optional.of(head));
             }
@@ -57,16 +59,18 @@ public final class Selection {
         return value.slice().offset.compareTo(offset) == 0 && value.slice().source.equals(source);
     }
 
-    private static Trampoline<ParseValue> getLowestOffsetValue(final ImmutableList<ParseGraph> graphList, final ParseValue lowest) {
-        if (graphList.isEmpty()) {
-            return complete(() -> lowest);
-        }
-        final ParseGraph graph = graphList.head;
-        if (graph.isEmpty() || !graph.getDefinition().isLocal()) {
-            return intermediate(() -> getLowestOffsetValue(graphList.tail, lowest));
+    private static ParseValue getLowestOffsetValue(final ParseGraph graph) {
+        final Deque<ParseGraph> graphs = new ArrayDeque<>();
+        graphs.push(graph);
+        ParseValue lowest = null;
+        while (!graphs.isEmpty()) {
+            final ParseGraph current = graphs.pop();
+            if (!current.isEmpty() && current.getDefinition().isLocal()) {
+                pushGraphs(graphs, current);
+                lowest = compareIfValue(lowest, current.head);
+            }
         }
-        return intermediate(() -> getLowestOffsetValue(addIfGraph(graphList.tail.add(graph.tail), graph.head),
-                                                       compareIfValue(lowest, graph.head)));
+        return lowest;
     }
 
     private static ParseValue compareIfValue(final ParseValue lowest, final ParseItem head) {
@@ -77,12 +81,36 @@ public final class Selection {
         return lowest == null || lowest.slice().offset.compareTo(value.slice().offset) > 0 ? value : lowest;
     }
 
-    private static ImmutableList<ParseGraph> addIfGraph(final ImmutableList<ParseGraph> graphList, final ParseItem head) {
-        return head.isGraph() ? graphList.add(head.asGraph()) : graphList;
+    /**
+     * Pushes the tail and, if it is a graph, the head of the provided graph
+     * onto the stack, so that the head is visited first.
+     */
+    private static void pushGraphs(final Deque<ParseGraph> graphs, final ParseGraph graph) {
+        graphs.push(graph.tail);
+        if (graph.head.isGraph()) {
+            graphs.push(graph.head.asGraph());
+        }
     }
 
+    /**
+     * Returns all values in the provided graph that match the predicate, in
+     * reverse order of traversal. The graph is traversed depth-first using an
+     * explicit stack, so the traversal allocates no intermediate objects
+     * besides the result and the depth of the graph is not limited by the
+     * call stack.
+     */
     public static ImmutableList<ParseValue> getAllValues(final ParseGraph graph, final Predicate<ParseValue> predicate, final int limit) {
-        return getAllValues(ImmutableList.create(graph), new ImmutableList<>(), predicate, limit).computeResult();
+        final Deque<ParseGraph> graphs = new ArrayDeque<>();
+        graphs.push(graph);
+        ImmutableList<ParseValue> valueList = new ImmutableList<>();
+        while (!graphs.isEmpty() && valueList.size != limit) {
+            final ParseGraph current = graphs.pop();
+            if (!current.isEmpty()) {
+                pushGraphs(graphs, current);
+                valueList = addIfMatchingValue(valueList, current.head, predicate);
+            }
+        }
+        return valueList;
     }
 
     public static ImmutableList<ParseValue> getAllValues(final ParseGraph graph, final Predicate<ParseValue> predicate) {
@@ -90,31 +118,16 @@ public final class Selection {
     }
 
     public static ImmutableList<ParseValue> getAllValues(final ParseGraph graph, final Predicate<ParseValue> predicate, final int limit, final int requestedScope, final int currentScope) {
-        return getAllScopedValues(graph, predicate, limit, requestedScope, currentScope).computeResult();
-    }
-
-    private static Trampoline<ImmutableList<ParseValue>> getAllScopedValues(final ParseGraph graph, final Predicate<ParseValue> predicate, final int limit, final int requestedScope, final int currentScope) {
-        if (graph.isEmpty() || limit == 0) {
-            return complete(ImmutableList::new);
+        ParseGraph scopedGraph = graph;
+        int scope = currentScope;
+        while (!scopedGraph.isEmpty() && limit != 0 && requestedScope < scope) {
+            scope = scopedGraph.head.getDefinition().isScopeDelimiter() ? scope - 1 : scope;
+            scopedGraph = scopedGraph.head.asGraph();
         }
-        if (requestedScope >= currentScope) {
-            return complete(() -> getAllValues(graph, predicate, limit));
+        if (scopedGraph.isEmpty() || limit == 0) {
+            return new ImmutableList<>();
         }
-        return intermediate(() -> getAllScopedValues(graph.head.asGraph(), predicate, limit, requestedScope, graph.head.getDefinition().isScopeDelimiter() ? currentScope - 1 : currentScope));
-    }
-
-    private static Trampoline<ImmutableList<ParseValue>> getAllValues(final ImmutableList<ParseGraph> graphList, final ImmutableList<ParseValue> valueList, final Predicate<ParseValue> predicate, final int limit) {
-        if (graphList.isEmpty() || valueList.size == limit) {
-            return complete(() -> valueList);
-        }
-        final ParseGraph graph = graphList.head;
-        if (graph.isEmpty()) {
-            return intermediate(() -> getAllValues(graphList.tail, valueList, predicate, limit));
-        }
-        return intermediate(() -> getAllValues(addIfGraph(graphList.tail.add(graph.tail), graph.head),
-                                               addIfMatchingValue(valueList, graph.head, predicate),
-                                               predicate,
-                                               limit));
+        return getAllValues(scopedGraph, predicate, limit);
     }
 
     private static ImmutableList<ParseValue> addIfMatchingValue(final ImmutableList<ParseValue> valueList, final ParseItem item, final Predicate<ParseValue> predicate) {
@@ -128,35 +141,32 @@ public final class Selection {
         if (list.isEmpty()) {
             return list;
         }
-        return reverse(list.tail, ImmutableList.create(list.head)).computeResult();
-    }
-
-    private static <T> Trampoline<ImmutableList<T>> reverse(final ImmutableList<T> oldList, final ImmutableList<T> newList) {
-        if (oldList.isEmpty()) {
-            return complete(() -> newList);
+        ImmutableList<T> newList = new ImmutableList<>();
+        for (ImmutableList<T> oldList = list; !oldList.isEmpty(); oldList = oldList.tail) {
+            newList = newList.add(oldList.head);
         }
-        return intermediate(() -> reverse(oldList.tail, newList.add(oldList.head)));
+        return newList;
     }
 
     public static ImmutableList<ParseItem> getAllRoots(final ParseGraph graph, final Token definition) {
-        return getAllRootsRecursive(ImmutableList.create(new Pair(checkNotNull(graph, "graph"), null)), checkNotNull(definition, "definition"), new ImmutableList<>()).computeResult();
-    }
-
-    private static Trampoline<ImmutableList<ParseItem>> getAllRootsRecursive(final ImmutableList<Pair> backlog, final Token definition, final ImmutableList<ParseItem> rootList) {
-        if (backlog.isEmpty()) {
-            return complete(() -> rootList);
-        }
-        final ParseItem item = backlog.head.item;
-        final ParseGraph parent = backlog.head.parent;
-        final ImmutableList<ParseItem> nextResult = item.getDefinition().equals(definition) && (parent == null || !parent.getDefinition().equals(definition)) ? rootList.add(item) : rootList;
-        if (item.isGraph() && !item.asGraph().isEmpty()) {
-            final ParseGraph itemGraph = item.asGraph();
-            return intermediate(() -> getAllRootsRecursive(backlog.tail.add(new Pair(itemGraph.head, itemGraph))
-                                                                       .add(new Pair(itemGraph.tail, itemGraph)),
-                                                           definition,
-                                                           nextResult));
+        final Pair root = new Pair(checkNotNull(graph, "graph"), null);
+        checkNotNull(definition, "definition");
+        final Deque<Pair> backlog = new ArrayDeque<>();
+        backlog.push(root);
+        ImmutableList<ParseItem> rootList = new ImmutableList<>();
+        while (!backlog.isEmpty()) {
+            final Pair pair = backlog.pop();
+            final ParseItem item = pair.item;
+            if (item.getDefinition().equals(definition) && (pair.parent == null || !pair.parent.getDefinition().equals(definition))) {
+                rootList = rootList.add(item);
+            }
+            if (item.isGraph() && !item.asGraph().isEmpty()) {
+                final ParseGraph itemGraph = item.asGraph();
+                backlog.push(new Pair(itemGraph.head, itemGraph));
+                backlog.push(new Pair(itemGraph.tail, itemGraph));
+            }
         }
-        return intermediate(() -> getAllRootsRecursive(backlog.tail, definition, nextResult));
+        return rootList;
     }
 
     static class Pair {
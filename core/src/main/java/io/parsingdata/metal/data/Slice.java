@@ -23,6 +23,7 @@ import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -35,26 +36,76 @@ public class Slice extends ImmutableObject {
     public final BigInteger offset;
     public final BigInteger length;
 
+    // The offset and length as primitives, or -1 if they are too large for long arithmetic. BigInteger is the fallback.
+    private final long longOffset;
+    private final long longLength;
+
     private Slice(final Source source, final BigInteger offset, final BigInteger length) {
+        this(source, offset, length, toLong(offset), toLong(length));
+    }
+
+    private Slice(final Source source, final BigInteger offset, final BigInteger length, final long longOffset, final long longLength) {
         this.source = checkNotNull(source, "source");
         this.offset = checkNotNull(offset, "offset");
         this.length = checkNotNull(length, "length");
+        this.longOffset = longOffset;
+        this.longLength = longLength;
     }
 
     public static Optional<Slice> createFromSource(final Source source, final BigInteger offset, final BigInteger length) {
-        if (checkNotNull(offset, "offset").compareTo(ZERO) < 0 ||
-            checkNotNull(length, "length").compareTo(ZERO) < 0 ||
-            !checkNotNull(source, "source").isAvailable(offset, length)) {
+        if (checkNotNull(offset, "offset").signum() < 0 ||
+            checkNotNull(length, "length").signum() < 0 ||
+            !isAvailable(checkNotNull(source, "source"), offset, length)) {
             return Optional.empty();
         }
         return Optional.of(new Slice(source, offset, length));
     }
 
+    /**
+     * Variant of {@link #createFromSource(Source, BigInteger, BigInteger)}
+     * for callers that already hold the primitive form of the offset, as
+     * returned by {@link #toLong(BigInteger)}.
+     */
+    static Optional<Slice> createFromSource(final Source source, final BigInteger offset, final long longOffset, final BigInteger length) {
+        final long longLength = toLong(checkNotNull(length, "length"));
+        if (longOffset < 0 || longLength < 0) {
+            return createFromSource(source, offset, length);
+        }
+        if (!checkNotNull(source, "source").isAvailable(longOffset, longLength)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Slice(source, checkNotNull(offset, "offset"), length, longOffset, longLength));
+    }
+
+    private static boolean isAvailable(final Source source, final BigInteger offset, final BigInteger length) {
+        return fitsInLong(offset, length) ? source.isAvailable(offset.longValue(), length.longValue()) : source.isAvailable(offset, length);
+    }
+
+    /**
+     * Returns whether both values, as well as their sum, fit in a
+     * <code>long</code>, so that arithmetic on them can be done on primitives.
+     */
+    private static boolean fitsInLong(final BigInteger left, final BigInteger right) {
+        return left.bitLength() < Long.SIZE - 2 && right.bitLength() < Long.SIZE - 2;
+    }
+
+    /**
+     * Returns the value as a <code>long</code> if it is not negative and small
+     * enough for the sum of two such values to fit in a <code>long</code>,
+     * or -1 otherwise.
+     */
+    static long toLong(final BigInteger value) {
+        return value.signum() >= 0 && value.bitLength() < Long.SIZE - 2 ? value.longValue() : -1;
+    }
+
     public static Slice createFromBytes(final byte[] data) {
         return new Slice(new ConstantSource(checkNotNull(data, "data")), ZERO, BigInteger.valueOf(data.length));
     }
 
     public byte[] getData() {
+        if (longOffset >= 0 && longLength >= 0) {
+            return source.getData(longOffset, Math.toIntExact(longLength));
+        }
         return getData(length);
     }
 
@@ -69,11 +120,24 @@ public class Slice extends ImmutableObject {
      * @return a byte array representing the data.
      */
     public byte[] getData(final BigInteger offset, final BigInteger limit) {
+        if (fitsInLong(checkNotNegative(offset, "offset"), checkNotNegative(limit, "limit")) && longOffset >= 0 && longLength >= 0) {
+            final long calculatedLength = Math.max(0, Math.min(limit.longValue(), longLength - offset.longValue()));
+            return source.getData(offset.longValue() + longOffset, Math.toIntExact(calculatedLength));
+        }
         final BigInteger calculatedOffset = checkNotNegative(offset, "offset").add(this.offset);
         final BigInteger calculatedLength = checkNotNegative(limit, "limit").min(length.subtract(offset)).max(ZERO);
         return source.getData(calculatedOffset, calculatedLength);
     }
 
+    /**
+     * Return a read-only view on the data of this slice. Depending on the
+     * source, the view is served without copying the data.
+     * @return a read-only buffer positioned at zero with the length of the slice as its limit.
+     */
+    public ByteBuffer getBuffer() {
+        return source.getBuffer(offset, length);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + source + "@" + offset + ":" + length.add(offset) + ")";
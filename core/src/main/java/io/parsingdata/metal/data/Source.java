@@ -18,6 +18,7 @@
 package io.parsingdata.metal.data;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import io.parsingdata.metal.ImmutableObject;
 
@@ -27,4 +28,34 @@ public abstract class Source extends ImmutableObject {
 
     protected abstract boolean isAvailable(BigInteger offset, BigInteger length);
 
+    /**
+     * Variant of {@link #getData(BigInteger, BigInteger)} for offsets and
+     * lengths that fit in primitive types. Sources override this method to
+     * avoid <code>BigInteger</code> arithmetic on the common path.
+     */
+    protected byte[] getData(final long offset, final int length) {
+        return getData(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    /**
+     * Variant of {@link #isAvailable(BigInteger, BigInteger)} for offsets
+     * and lengths that fit in a <code>long</code>. Callers guarantee that
+     * the sum of both arguments does not overflow.
+     */
+    protected boolean isAvailable(final long offset, final long length) {
+        return isAvailable(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    /**
+     * Return a read-only view on the data specified by the offset and length.
+     * Sources that keep their data in memory override this method to serve
+     * the view without copying.
+     * @param offset the offset to start reading from
+     * @param length the number of bytes in the view
+     * @return a read-only buffer positioned at zero with the requested length as its limit.
+     */
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        return ByteBuffer.wrap(getData(offset, length)).asReadOnlyBuffer();
+    }
+
 }
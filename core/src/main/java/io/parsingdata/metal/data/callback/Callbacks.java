@@ -53,6 +53,10 @@ public class Callbacks {
         return new Callbacks(genericCallback, tokenCallbacks.add(new ImmutablePair<>(token, callback)));
     }
 
+    public boolean isEmpty() {
+        return genericCallback == null && tokenCallbacks.isEmpty();
+    }
+
     public static Consumer<Callback> success(final Token token, final ParseState before, final ParseState after) {
         return callback -> callback.handleSuccess(token, before, after);
     }
@@ -17,18 +17,43 @@
 
 package io.parsingdata.metal.encoding;
 
+import java.nio.ByteBuffer;
+
 public enum ByteOrder {
 
-    BIG_ENDIAN { @Override public byte[] apply(final byte[] bytes) {
-        return bytes.clone();
-    } },
-    LITTLE_ENDIAN { @Override public byte[] apply(final byte[] bytes) {
-        final byte[] output = bytes.clone();
-        for (int i = 0; i < bytes.length; i++) {
-            output[i] = bytes[(bytes.length-1)-i];
+    BIG_ENDIAN {
+        @Override public byte[] apply(final byte[] bytes) {
+            return bytes.clone();
+        }
+        @Override public byte[] apply(final ByteBuffer bytes) {
+            final byte[] output = new byte[bytes.remaining()];
+            bytes.duplicate().get(output);
+            return output;
+        }
+    },
+    LITTLE_ENDIAN {
+        @Override public byte[] apply(final byte[] bytes) {
+            final byte[] output = bytes.clone();
+            for (int i = 0; i < bytes.length; i++) {
+                output[i] = bytes[(bytes.length-1)-i];
+            }
+            return output;
         }
-        return output;
-    } };
+        @Override public byte[] apply(final ByteBuffer bytes) {
+            final byte[] output = new byte[bytes.remaining()];
+            final int position = bytes.position();
+            for (int i = 0; i < output.length; i++) {
+                output[i] = bytes.get(position + (output.length-1)-i);
+            }
+            return output;
+        }
+    };
 
     public abstract byte[] apply(final byte[] bytes);
+
+    /**
+     * Return the remaining bytes of the buffer in big-endian order, without
+     * modifying the position of the buffer.
+     */
+    public abstract byte[] apply(final ByteBuffer bytes);
 }
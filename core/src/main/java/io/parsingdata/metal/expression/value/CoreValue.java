@@ -21,6 +21,7 @@ import static io.parsingdata.metal.Util.bytesToHexString;
 import static io.parsingdata.metal.Util.checkNotNull;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Objects;
 
@@ -34,10 +35,16 @@ import io.parsingdata.metal.encoding.Sign;
 public class CoreValue extends ImmutableObject implements Value {
 
     public static final BigInteger TO_STRING_BYTE_COUNT = BigInteger.valueOf(4);
+    private static final BigInteger LONG_BYTE_COUNT = BigInteger.valueOf(Long.BYTES);
 
     private final Slice slice;
     private final Encoding encoding;
 
+    // Lazily decoded, since the same value is often evaluated numerically many times.
+    private BigInteger numeric;
+    private long longValue;
+    private boolean longDecoded;
+
     public CoreValue(final Slice slice, final Encoding encoding) {
         this.slice = checkNotNull(slice, "slice");
         this.encoding = checkNotNull(encoding, "encoding");
@@ -58,6 +65,11 @@ public class CoreValue extends ImmutableObject implements Value {
         return slice.getData();
     }
 
+    @Override
+    public ByteBuffer valueBuffer() {
+        return slice.getBuffer();
+    }
+
     @Override
     public BigInteger length() {
         return slice.length;
@@ -65,18 +77,54 @@ public class CoreValue extends ImmutableObject implements Value {
 
     @Override
     public BigInteger asNumeric() {
-        return encoding.sign == Sign.SIGNED ? new BigInteger(encoding.byteOrder.apply(value()))
-                                            : new BigInteger(1, encoding.byteOrder.apply(value()));
+        if (numeric == null) {
+            numeric = encoding.sign == Sign.SIGNED ? new BigInteger(encoding.byteOrder.apply(valueBuffer()))
+                                                   : new BigInteger(1, encoding.byteOrder.apply(valueBuffer()));
+        }
+        return numeric;
+    }
+
+    /**
+     * Return the numeric value as a <code>long</code>. Values of at most
+     * eight bytes are decoded directly, without creating a
+     * <code>BigInteger</code>.
+     * @return the numeric value of this value.
+     * @throws ArithmeticException if the numeric value does not fit in a <code>long</code>.
+     */
+    @Override
+    public long asLong() {
+        if (!longDecoded) {
+            longValue = slice.length.signum() == 0 || slice.length.compareTo(LONG_BYTE_COUNT) > 0 ? asNumeric().longValueExact() : decodeLong();
+            longDecoded = true;
+        }
+        return longValue;
+    }
+
+    private long decodeLong() {
+        final byte[] data = slice.getData();
+        final int size = data.length;
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result = (result << Byte.SIZE) | (data[encoding.byteOrder == ByteOrder.BIG_ENDIAN ? i : size - 1 - i] & 0xff);
+        }
+        if (encoding.sign == Sign.SIGNED) {
+            final int unusedBits = Long.SIZE - size * Byte.SIZE;
+            return (result << unusedBits) >> unusedBits;
+        }
+        if (result < 0) {
+            throw new ArithmeticException("Value out of long range.");
+        }
+        return result;
     }
 
     @Override
     public String asString() {
-        return new String(value(), encoding.charset);
+        return encoding.charset.decode(valueBuffer()).toString();
     }
 
     @Override
     public BitSet asBitSet() {
-        return BitSet.valueOf(encoding.byteOrder == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN.apply(value()) : value());
+        return encoding.byteOrder == ByteOrder.BIG_ENDIAN ? BitSet.valueOf(ByteOrder.LITTLE_ENDIAN.apply(valueBuffer())) : BitSet.valueOf(valueBuffer());
     }
 
     @Override
@@ -61,7 +61,7 @@ public class Expand extends ImmutableObject implements ValueExpression {
         }
         return count.evalSingle(parseState, encoding)
             .filter(countValue -> !countValue.equals(NOT_A_VALUE))
-            .map(countValue -> expand(baseList, countValue.asNumeric().intValueExact(), new ImmutableList<>()).computeResult())
+            .map(countValue -> expand(baseList, Math.toIntExact(countValue.asLong()), new ImmutableList<>()).computeResult())
             .orElseThrow(() -> new IllegalArgumentException("Count must evaluate to a non-empty countable value."));
     }
 
@@ -18,6 +18,7 @@
 package io.parsingdata.metal.expression.value;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Objects;
 
@@ -38,10 +39,14 @@ public final class NotAValue extends ImmutableObject implements Value {
 
     @Override public byte[] value() { throw unsupported(); }
 
+    @Override public ByteBuffer valueBuffer() { throw unsupported(); }
+
     @Override public BigInteger length() { throw unsupported(); }
 
     @Override public BigInteger asNumeric() { throw unsupported(); }
 
+    @Override public long asLong() { throw unsupported(); }
+
     @Override public String asString() { throw unsupported(); }
 
     @Override public BitSet asBitSet() { throw unsupported(); }
@@ -18,6 +18,7 @@
 package io.parsingdata.metal.expression.value;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 
 import io.parsingdata.metal.data.Slice;
@@ -31,10 +32,28 @@ public interface Value {
 
     byte[] value();
 
+    /**
+     * Return a read-only view on the data of this value. The default
+     * implementation wraps the result of {@link #value()}. Implementations
+     * that can serve the data without copying override this method.
+     */
+    default ByteBuffer valueBuffer() {
+        return ByteBuffer.wrap(value()).asReadOnlyBuffer();
+    }
+
     BigInteger length();
 
     BigInteger asNumeric();
 
+    /**
+     * Return the numeric value as a <code>long</code>. The default
+     * implementation converts the result of {@link #asNumeric()}.
+     * @throws ArithmeticException if the numeric value does not fit in a <code>long</code>.
+     */
+    default long asLong() {
+        return asNumeric().longValueExact();
+    }
+
     String asString();
 
     BitSet asBitSet();
@@ -40,7 +40,7 @@ public class ShiftLeft extends BinaryValueExpression {
     @Override
     public Optional<Value> eval(final Value leftValue, final Value rightValue, final ParseState parseState, final Encoding encoding) {
         final BitSet leftBits = leftValue.asBitSet();
-        final int shiftLeft = rightValue.asNumeric().intValueExact();
+        final int shiftLeft = Math.toIntExact(rightValue.asLong());
         final int bitCount = leftBits.length() + shiftLeft;
         final BitSet out = new BitSet(bitCount);
         for (int i = leftBits.nextSetBit(0); i >= 0; i = leftBits.nextSetBit(i+1)) {
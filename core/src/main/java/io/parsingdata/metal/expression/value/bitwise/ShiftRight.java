@@ -40,8 +40,8 @@ public class ShiftRight extends BinaryValueExpression {
     @Override
     public Optional<Value> eval(final Value leftValue, final Value rightValue, final ParseState parseState, final Encoding encoding) {
         final BitSet leftBits = leftValue.asBitSet();
-        final int shift = rightValue.asNumeric().intValueExact();
-        return Optional.of(ConstantFactory.createFromBitSet(leftBits.get(shift, Math.max(shift, leftBits.length())), leftValue.value().length, encoding));
+        final int shift = Math.toIntExact(rightValue.asLong());
+        return Optional.of(ConstantFactory.createFromBitSet(leftBits.get(shift, Math.max(shift, leftBits.length())), leftValue.length().intValueExact(), encoding));
     }
 
 }
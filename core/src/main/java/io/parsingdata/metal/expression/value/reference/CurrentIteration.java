@@ -57,7 +57,7 @@ import io.parsingdata.metal.token.While;
  */
 public class CurrentIteration extends ImmutableObject implements SingleValueExpression {
 
-    private final SingleValueExpression level;
+    public final SingleValueExpression level;
 
     public CurrentIteration(final SingleValueExpression level) {
         this.level = checkNotNull(level, "level");
@@ -69,7 +69,7 @@ public class CurrentIteration extends ImmutableObject implements SingleValueExpr
         if (levelValue.isEmpty() || levelValue.get().equals(NOT_A_VALUE) || levelValue.get().asNumeric().compareTo(ZERO) < 0) {
             return Optional.of(NOT_A_VALUE);
         }
-        if (parseState.iterations.size <= levelValue.get().asNumeric().longValueExact()) {
+        if (parseState.iterations.size <= levelValue.get().asLong()) {
             return Optional.empty();
         }
         return getIterationRecursive(parseState.iterations, levelValue.get().asNumeric()).computeResult();
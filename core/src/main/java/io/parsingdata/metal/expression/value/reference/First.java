@@ -48,6 +48,9 @@ public class First extends ImmutableObject implements SingleValueExpression {
 
     @Override
     public Optional<Value> evalSingle(final ParseState parseState, final Encoding encoding) {
+        if (operand instanceof Ref) {
+            return ((Ref<?>)operand).evalNth(parseState, encoding, -1);
+        }
         final ImmutableList<Value> values = operand.eval(parseState, encoding);
         return values.isEmpty() ? Optional.empty() : Optional.of(getFirst(values).computeResult());
     }
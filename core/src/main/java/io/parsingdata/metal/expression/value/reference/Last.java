@@ -45,6 +45,9 @@ public class Last extends ImmutableObject implements SingleValueExpression {
 
     @Override
     public Optional<Value> evalSingle(final ParseState parseState, final Encoding encoding) {
+        if (operand instanceof Ref) {
+            return ((Ref<?>)operand).evalNth(parseState, encoding, 0);
+        }
         final ImmutableList<Value> values = operand.eval(parseState, encoding);
         return values.isEmpty() ? Optional.empty() : Optional.of(values.head);
     }
@@ -62,6 +62,9 @@ public class Nth extends ImmutableObject implements ValueExpression {
 
     @Override
     public ImmutableList<Value> eval(final ParseState parseState, final Encoding encoding) {
+        if (values instanceof Ref) {
+            return reverse(evalRef((Ref<?>)values, parseState, encoding, indices.eval(parseState, encoding), new ImmutableList<>()).computeResult());
+        }
         return reverse(eval(values.eval(parseState, encoding), indices.eval(parseState, encoding), new ImmutableList<>()).computeResult());
     }
 
@@ -77,6 +80,17 @@ public class Nth extends ImmutableObject implements ValueExpression {
         return intermediate(() -> eval(values, indices.tail, result.add(nextResult)));
     }
 
+    private Trampoline<ImmutableList<Value>> evalRef(final Ref<?> ref, final ParseState parseState, final Encoding encoding, final ImmutableList<Value> indices, final ImmutableList<Value> result) {
+        if (indices.isEmpty()) {
+            return complete(() -> result);
+        }
+        final Value index = indices.head;
+        final Value nextResult = !index.equals(NOT_A_VALUE) && index.asNumeric().signum() >= 0 && index.asNumeric().bitLength() < Long.SIZE - 1
+            ? ref.evalNth(parseState, encoding, -1 - index.asNumeric().longValueExact()).orElse(NOT_A_VALUE)
+            : NOT_A_VALUE;
+        return intermediate(() -> evalRef(ref, parseState, encoding, indices.tail, result.add(nextResult)));
+    }
+
     private Trampoline<Value> nth(final ImmutableList<Value> values, final BigInteger index) {
         if (index.equals(ZERO)) {
             return complete(() -> values.head);
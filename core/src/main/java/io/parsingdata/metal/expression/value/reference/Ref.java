@@ -17,8 +17,6 @@
 
 package io.parsingdata.metal.expression.value.reference;
 
-import static java.math.BigInteger.ZERO;
-
 import static io.parsingdata.metal.Trampoline.complete;
 import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkContainsNoNulls;
@@ -29,9 +27,11 @@ import static io.parsingdata.metal.data.Selection.getAllValues;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiPredicate;
 
 import io.parsingdata.metal.ImmutableObject;
@@ -84,15 +84,28 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
         public NameRef(final SingleValueExpression limit, final SingleValueExpression scope, final String reference, final String... references) { super(ParseValue::matches, limit, scope, reference, references); }
         private NameRef(final BiPredicate<ParseValue, String> predicate, final SingleValueExpression limit, final SingleValueExpression scope, final ImmutableList<String> references) { super(predicate, limit, scope, references); }
 
+        @Override
+        protected boolean matchesAny(final ParseValue parseValue) {
+            // Names match on a suffix of the value's name, so they are compared one by one instead of through a set.
+            for (ImmutableList<String> names = references; !names.isEmpty(); names = names.tail) {
+                if (predicate.test(parseValue, names.head)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         @Override
         protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
-            return Optional.of(parseState.cache)
-                .filter(p -> references.size == 1)
-                .filter(p -> requestedScope >= parseState.order.scopeDepth)
-                .flatMap(p -> p.find(references.head, limit))
+            return parseState.cache.findByName(references, limit, requestedScope, parseState.order.scopeDepth)
                 .orElseGet(() -> super.evalImpl(parseState, limit, requestedScope));
         }
 
+        @Override
+        protected Optional<ImmutableList<Value>> findNth(final ParseState parseState, final long index, final int limit, final int requestedScope) {
+            return parseState.cache.findNthByName(references, index, limit, requestedScope, parseState.order.scopeDepth);
+        }
+
         @Override
         public NameRef withLimit(final SingleValueExpression limit) {
             return new NameRef(predicate, limit, scope, references);
@@ -104,10 +117,28 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
     }
 
     public static class DefinitionRef extends Ref<Token> {
+        private final Set<Token> definitions; // The references, hashed once to match them without allocating during the graph walk
+
         public DefinitionRef(final Token reference, final Token... references) { this(null, null, reference, references); }
         public DefinitionRef(final SingleValueExpression limit, final Token reference, final Token... references) { this(limit, null, reference, references); }
-        public DefinitionRef(final SingleValueExpression limit, final SingleValueExpression scope, final Token reference, final Token... references) { super(ParseValue::matches, limit, scope, reference, references); }
-        private DefinitionRef(final BiPredicate<ParseValue, Token> predicate, final SingleValueExpression limit, final SingleValueExpression scope, final ImmutableList<Token> references) { super(predicate, limit, scope, references); }
+        public DefinitionRef(final SingleValueExpression limit, final SingleValueExpression scope, final Token reference, final Token... references) { super(ParseValue::matches, limit, scope, reference, references); definitions = new HashSet<>(toList(this.references)); }
+        private DefinitionRef(final BiPredicate<ParseValue, Token> predicate, final SingleValueExpression limit, final SingleValueExpression scope, final ImmutableList<Token> references) { super(predicate, limit, scope, references); definitions = new HashSet<>(toList(this.references)); }
+
+        @Override
+        protected boolean matchesAny(final ParseValue parseValue) {
+            return definitions.contains(parseValue.definition);
+        }
+
+        @Override
+        protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
+            return parseState.cache.findByDefinition(references, limit, requestedScope, parseState.order.scopeDepth)
+                .orElseGet(() -> super.evalImpl(parseState, limit, requestedScope));
+        }
+
+        @Override
+        protected Optional<ImmutableList<Value>> findNth(final ParseState parseState, final long index, final int limit, final int requestedScope) {
+            return parseState.cache.findNthByDefinition(references, index, limit, requestedScope, parseState.order.scopeDepth);
+        }
 
         @Override
         public DefinitionRef withLimit(final SingleValueExpression limit) {
@@ -124,21 +155,78 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
 
     @Override
     public ImmutableList<Value> eval(final ParseState parseState, final Encoding encoding) {
-        final int requestedScope = scope == null ? parseState.order.scopeDepth : scope.evalSingle(parseState, encoding)
-            .filter(sizeValue -> !sizeValue.equals(NOT_A_VALUE) && sizeValue.asNumeric().compareTo(ZERO) >= 0)
-            .orElseThrow(() -> new IllegalArgumentException("Argument scopeSize must evaluate to a positive, countable value.")).asNumeric().intValueExact();
+        final int requestedScope = requestedScope(parseState, encoding);
         if (limit == null) {
             return evalImpl(parseState, NO_LIMIT, requestedScope);
         }
         return limit.evalSingle(parseState, encoding)
-            .map(limitValue -> limitValue.equals(NOT_A_VALUE) ? create(NOT_A_VALUE) : evalImpl(parseState, limitValue.asNumeric().intValueExact(), requestedScope))
+            .map(limitValue -> limitValue.equals(NOT_A_VALUE) ? create(NOT_A_VALUE) : evalImpl(parseState, Math.toIntExact(limitValue.asLong()), requestedScope))
             .orElseThrow(() -> new IllegalArgumentException("Limit must evaluate to a non-empty value."));
     }
 
+    /**
+     * Evaluates this reference and returns only the value at the provided
+     * position in the result. When the {@link ParseState}'s cache is able to
+     * answer the query, the complete list of values is not built.
+     *
+     * @param parseState the parse state to evaluate in
+     * @param encoding the encoding to evaluate with
+     * @param index the position of the value, counting from the most
+     *              recently added value when non-negative (<code>0</code> is
+     *              the last value) and from the first added value when
+     *              negative (<code>-1</code> is the first value)
+     * @return the value at the provided position, or empty if there is none
+     */
+    public Optional<Value> evalNth(final ParseState parseState, final Encoding encoding, final long index) {
+        final int requestedScope = requestedScope(parseState, encoding);
+        final int limitValue;
+        if (limit == null) {
+            limitValue = NO_LIMIT;
+        } else {
+            final Value value = limit.evalSingle(parseState, encoding).orElseThrow(() -> new IllegalArgumentException("Limit must evaluate to a non-empty value."));
+            if (value.equals(NOT_A_VALUE)) {
+                return nth(create(NOT_A_VALUE), index);
+            }
+            limitValue = Math.toIntExact(value.asLong());
+        }
+        return findNth(parseState, index, limitValue, requestedScope)
+            .map(values -> values.isEmpty() ? Optional.<Value>empty() : Optional.of(values.head))
+            .orElseGet(() -> nth(evalImpl(parseState, limitValue, requestedScope), index));
+    }
+
+    private int requestedScope(final ParseState parseState, final Encoding encoding) {
+        return scope == null ? parseState.order.scopeDepth : Math.toIntExact(scope.evalSingle(parseState, encoding)
+            .filter(sizeValue -> !sizeValue.equals(NOT_A_VALUE) && sizeValue.asNumeric().signum() >= 0)
+            .orElseThrow(() -> new IllegalArgumentException("Argument scopeSize must evaluate to a positive, countable value.")).asLong());
+    }
+
+    private static Optional<Value> nth(final ImmutableList<Value> values, final long index) {
+        final long position = index < 0 ? values.size + index : index;
+        if (position < 0 || position >= values.size) {
+            return Optional.empty();
+        }
+        ImmutableList<Value> tail = values;
+        for (long i = 0; i < position; i++) {
+            tail = tail.tail;
+        }
+        return Optional.of(tail.head);
+    }
+
+    protected Optional<ImmutableList<Value>> findNth(final ParseState parseState, final long index, final int limit, final int requestedScope) {
+        return Optional.empty();
+    }
+
     protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
-        return wrap(getAllValues(parseState.order, parseValue -> toList(references).stream().anyMatch(ref -> predicate.test(parseValue, ref)), limit, requestedScope, parseState.order.scopeDepth), new ImmutableList<Value>()).computeResult();
+        return wrap(getAllValues(parseState.order, this::matchesAny, limit, requestedScope, parseState.order.scopeDepth), new ImmutableList<Value>()).computeResult();
     }
 
+    /**
+     * Returns whether <code>parseValue</code> matches any of the
+     * <code>references</code>. Called for every value visited while walking
+     * the graph, so it must not allocate.
+     */
+    protected abstract boolean matchesAny(final ParseValue parseValue);
+
     static <T> List<T> toList(final ImmutableList<T> allValues) {
         final List<T> flatten = new ArrayList<>();
         ImmutableList<T> tail = allValues;
@@ -17,21 +17,21 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkContainsNoNulls;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.failure;
 import static io.parsingdata.metal.Util.success;
 import static io.parsingdata.metal.data.ImmutableList.create;
+import static io.parsingdata.metal.data.Selection.reverse;
 
+import java.math.BigInteger;
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
-import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Slice;
 import io.parsingdata.metal.encoding.Encoding;
 
 /**
@@ -40,31 +40,68 @@ import io.parsingdata.metal.encoding.Encoding;
  * A Cho consists of a list of <code>tokens</code>. If none of the tokens
  * succeed, the Cho fails. If any token succeeds, the Cho succeeds. Precedence
  * is from left to right.
+ * <p>
+ * When no callbacks are registered, tokens whose {@link PrefixGuard} does not
+ * match the bytes at the current offset are skipped without being parsed,
+ * since they cannot succeed.
+ *
+ * @see ParCho
  */
 public class Cho extends CycleToken {
 
     public final ImmutableList<Token> tokens;
+    final ImmutableList<PrefixGuard> guards;
+    private final int guardLength;
 
     public Cho(final String name, final Encoding encoding, final Token token1, final Token token2, final Token... additionalTokens) {
         super(name, encoding);
         this.tokens = create(checkContainsNoNulls(additionalTokens, "additionalTokens"))
             .add(checkNotNull(token2, "token2"))
             .add(checkNotNull(token1, "token1"));
+        ImmutableList<PrefixGuard> guardList = new ImmutableList<>();
+        int maxLength = 0;
+        for (ImmutableList<Token> list = reverse(tokens); !list.isEmpty(); list = list.tail) {
+            final PrefixGuard guard = PrefixGuard.of(list.head);
+            guardList = guardList.add(guard);
+            maxLength = Math.max(maxLength, guard.length());
+        }
+        this.guards = guardList;
+        this.guardLength = maxLength;
     }
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), tokens).computeResult();
+        final byte[] prefix = guardLength == 0 || !environment.callbacks.isEmpty() ? null : readPrefix(environment.parseState);
+        final Optional<ParseState> result = parseTokens(environment.addBranch(this), prefix);
+        if (result.isPresent()) {
+            return success(result.get().closeBranch(this));
+        }
+        return failure();
+    }
+
+    // Returns the result of the leftmost token that succeeds, skipping those whose guard does not match the prefix. Overridden by ParCho.
+    Optional<ParseState> parseTokens(final Environment environment, final byte[] prefix) {
+        ImmutableList<PrefixGuard> guardList = guards;
+        for (ImmutableList<Token> list = tokens; !list.isEmpty(); list = list.tail, guardList = guardList.tail) {
+            if (prefix != null && !guardList.head.matches(prefix)) {
+                continue;
+            }
+            final Optional<ParseState> result = list.head.parse(environment);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return failure();
     }
 
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Token> list) {
-        if (list.isEmpty()) {
-            return complete(Util::failure);
+    private byte[] readPrefix(final ParseState parseState) {
+        for (int length = guardLength; length > 0; length--) {
+            final Optional<Slice> slice = parseState.slice(BigInteger.valueOf(length));
+            if (slice.isPresent()) {
+                return slice.get().getData();
+            }
         }
-        return list.head
-            .parse(environment)
-            .map(result -> complete(() -> success(result.closeBranch(this))))
-            .orElseGet(() -> intermediate(() -> iterate(environment, list.tail)));
+        return new byte[0];
     }
 
     @Override
@@ -20,6 +20,7 @@ package io.parsingdata.metal.token;
 import java.util.Optional;
 
 import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.MemoTable;
 import io.parsingdata.metal.data.ParseReference;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.Source;
@@ -52,4 +53,19 @@ public abstract class CycleToken extends Token {
             environment.addCycleReference(
                     new ParseReference(environment.parseState.offset, environment.parseState.source, this.getCanonical(environment.parseState))));
     }
+
+    /**
+     * Returns whether a parallel token can parse concurrently in the given {@link Environment}, in such a way that
+     * the result is the same as that of a sequential parse. This requires that the nested {@link Token} is context
+     * free (see {@link MemoTable#isContextFree(Token)}), which is determined once when the parallel token is created,
+     * that no callbacks are registered, since these would observe the parses in a different order, and that the
+     * {@link ParseState} keeps all values, since the results of the concurrent parses are combined afterwards.
+     *
+     * @param contextFree whether the nested token is context free
+     * @param environment the environment the parallel token is parsed in
+     * @return true if the parallel token can parse concurrently, otherwise false
+     */
+    static boolean canParseConcurrently(final boolean contextFree, final Environment environment) {
+        return contextFree && environment.callbacks.isEmpty() && environment.parseState.getRetention().retainsAll();
+    }
 }
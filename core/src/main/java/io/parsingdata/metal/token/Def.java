@@ -17,8 +17,6 @@
 
 package io.parsingdata.metal.token;
 
-import static java.math.BigInteger.ZERO;
-
 import static io.parsingdata.metal.Util.checkNotEmpty;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.success;
@@ -33,6 +31,7 @@ import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.ParseValue;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.SingleValueExpression;
+import io.parsingdata.metal.expression.value.Value;
 
 /**
  * A {@link Token} that specifies a value to parse in the input.
@@ -58,13 +57,14 @@ public class Def extends Token {
     protected Optional<ParseState> parseImpl(final Environment environment) {
         return size.evalSingle(environment.parseState, environment.encoding)
             .filter(sizeValue -> !sizeValue.equals(NOT_A_VALUE))
-            .flatMap(sizeValue -> sizeValue.asNumeric().compareTo(ZERO) != 0 ? slice(environment, sizeValue.asNumeric()) : success(environment.parseState));
+            .map(Value::asNumeric)
+            .flatMap(dataSize -> dataSize.signum() != 0 ? slice(environment, dataSize) : success(environment.parseState));
     }
 
     private Optional<ParseState> slice(final Environment environment, final BigInteger dataSize) {
         return environment.parseState
             .slice(dataSize)
-            .flatMap(slice -> environment.parseState.add(new ParseValue(environment.scope, this, slice, environment.encoding)).seek(dataSize.add(environment.parseState.offset)));
+            .flatMap(slice -> environment.parseState.add(new ParseValue(environment.scopePath, this, slice, environment.encoding)).skip(dataSize));
     }
 
     @Override
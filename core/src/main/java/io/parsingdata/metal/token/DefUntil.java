@@ -68,6 +68,14 @@ import io.parsingdata.metal.expression.value.ValueExpression;
  * as sets of values to attempt. If <code>stepSize</code> is negative,
  * <code>maxSize</code> must be smaller than <code>initialSize</code>.
  * Parsing fails if <code>stepSize</code> is zero.
+ * <p>
+ * If the <code>terminator</code> constrains the bytes it is parsed from to
+ * constant values (such as <code>def("t", 1, eq(con(0)))</code>) or tests
+ * the bits of the last byte of the value (such as the terminator of a
+ * variable length integer), the input is scanned for the first size at
+ * which these bytes match, instead of parsing the <code>terminator</code>
+ * at every size. The result is identical. This is not done when callbacks
+ * are registered, so that they observe every attempt.
  *
  * @see ValueExpression
  */
@@ -77,10 +85,14 @@ public class DefUntil extends Token {
     public static final ValueExpression DEFAULT_STEP = con(1);
     public static final ValueExpression DEFAULT_MAX = con(Integer.MAX_VALUE);
 
+    private static final int MIN_SCAN_WINDOW = 64;
+    private static final int MAX_SCAN_WINDOW = 64 * 1024;
+
     public final ValueExpression initialSize;
     public final ValueExpression stepSize;
     public final ValueExpression maxSize;
     public final Token terminator;
+    private final PrefixGuard terminatorGuard;
 
     public DefUntil(final String name, final ValueExpression initialSize, final ValueExpression stepSize, final ValueExpression maxSize, final Token terminator, final Encoding encoding) {
         super(checkNotEmpty(name, "name"), encoding);
@@ -88,6 +100,7 @@ public class DefUntil extends Token {
         this.stepSize = stepSize == null ? DEFAULT_STEP : stepSize;
         this.maxSize = maxSize == null ? DEFAULT_MAX : maxSize;
         this.terminator = checkNotNull(terminator, "terminator");
+        this.terminatorGuard = PrefixGuard.ofTerminator(name, terminator);
     }
 
     @Override
@@ -111,14 +124,70 @@ public class DefUntil extends Token {
             (stepSize.compareTo(ZERO) < 0 && currentSize.compareTo(maxSize) < 0)) {
             return complete(Util::failure);
         }
+        final BigInteger candidateSize = skipToCandidate(environment, currentSize, stepSize, maxSize);
+        if (stepSize.compareTo(ZERO) > 0 && candidateSize.compareTo(maxSize) > 0) {
+            return complete(Util::failure);
+        }
         return environment.parseState
-            .slice(currentSize)
-            .map(slice -> parseSlice(environment, currentSize, stepSize, maxSize, slice))
+            .slice(candidateSize)
+            .map(slice -> parseSlice(environment, candidateSize, stepSize, maxSize, slice))
             .orElseGet(() -> complete(Util::failure));
     }
 
+    /**
+     * Returns the first size, starting at <code>currentSize</code> and
+     * increasing by <code>stepSize</code>, for which the guard derived from
+     * the terminator matches the input. The input is scanned in windows of
+     * increasing size, so the sizes at which the terminator cannot be parsed
+     * are skipped without adding a value and parsing the terminator for each
+     * of them. No input beyond the sizes up to <code>maxSize</code> is read;
+     * if the guard does not match at any of them, a size larger than
+     * <code>maxSize</code> is returned. Returns <code>currentSize</code> if
+     * the terminator has no guard, the step is not positive or callbacks are
+     * registered.
+     */
+    private BigInteger skipToCandidate(final Environment environment, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize) {
+        if (terminatorGuard.isTrivial()
+            || !environment.callbacks.isEmpty()
+            || stepSize.signum() <= 0
+            || stepSize.bitLength() > Integer.SIZE - 1
+            || currentSize.add(BigInteger.valueOf(terminatorGuard.start)).signum() < 0) {
+            return currentSize;
+        }
+        final int step = stepSize.intValueExact();
+        final BigInteger guardLength = BigInteger.valueOf(terminatorGuard.length());
+        BigInteger size = currentSize;
+        int windowSize = MIN_SCAN_WINDOW;
+        while (size.compareTo(maxSize) <= 0) {
+            final int readSize = maxSize.subtract(size).add(guardLength).min(BigInteger.valueOf(windowSize)).intValueExact();
+            final byte[] window = readWindow(environment.parseState, environment.parseState.offset.add(size).add(BigInteger.valueOf(terminatorGuard.start)), readSize);
+            if (window.length < terminatorGuard.length()) {
+                return size;
+            }
+            long position = 0;
+            for (; position <= window.length - terminatorGuard.length(); position += step) {
+                if (terminatorGuard.matches(window, (int) position)) {
+                    return size.add(BigInteger.valueOf(position));
+                }
+            }
+            size = size.add(BigInteger.valueOf(position));
+            windowSize = Math.min(windowSize * 2, MAX_SCAN_WINDOW);
+        }
+        return size;
+    }
+
+    private byte[] readWindow(final ParseState parseState, final BigInteger offset, final int windowSize) {
+        for (int length = windowSize; length >= terminatorGuard.length(); length /= 2) {
+            final Optional<Slice> slice = Slice.createFromSource(parseState.source, offset, BigInteger.valueOf(length));
+            if (slice.isPresent()) {
+                return slice.get().getData();
+            }
+        }
+        return new byte[0];
+    }
+
     private Trampoline<Optional<ParseState>> parseSlice(final Environment environment, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize, final Slice slice) {
-        return (currentSize.compareTo(ZERO) == 0 ? Optional.of(environment.parseState) : environment.parseState.add(new ParseValue(environment.scope, this, slice, environment.encoding)).seek(environment.parseState.offset.add(currentSize)))
+        return (currentSize.compareTo(ZERO) == 0 ? Optional.of(environment.parseState) : environment.parseState.add(new ParseValue(environment.scopePath, this, slice, environment.encoding)).skip(currentSize))
             .map(preparedParseState -> terminator.parse(environment.withParseState(preparedParseState)).map(ignore -> preparedParseState))
             .orElseGet(Util::failure)
             .map(parseState -> complete(() -> success(parseState)))
@@ -17,50 +17,211 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.success;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.MemoTable;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Slice;
 import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.Const;
 
+/**
+ * Base class for {@link Token}s that parse their <code>token</code>
+ * repeatedly.
+ * <p>
+ * The parallel iterable tokens {@link ParRep} and {@link ParRepN} split the
+ * input into shards and parse the iterations in all shards concurrently,
+ * using the common {@link ForkJoinPool}. Each shard but the first starts at a record
+ * boundary: either the first offset at which <code>sync</code> can be
+ * parsed, or, if <code>sync</code> is <code>null</code>, the first multiple
+ * of the size of <code>token</code>, which must then be fixed. The shards are
+ * then added in order, as long as each shard ends exactly where the next one
+ * starts. Otherwise the shards that follow are discarded and parsed again.
+ * The iterations after a shard that failed or stopped are parsed
+ * sequentially, so the result is the same as that of a sequential parse.
+ * <p>
+ * Sharding is only done if <code>token</code> is context free (see
+ * {@link MemoTable#isContextFree(Token)}), no callbacks are registered and
+ * the {@link ParseState} does not drop values. Otherwise a parallel
+ * iterable token parses sequentially.
+ */
 public abstract class IterableToken extends CycleToken {
 
+    private static final long MIN_SHARD_SIZE = 64;
+    private static final long MAX_SHARD_SIZE = 16 * 1024 * 1024;
+
     public final Token token;
+    final Token sync; // null if the token is not parallel or the record boundaries follow from the fixed size of token
+    private final BigInteger recordSize; // null if token has no fixed size
+    private final boolean shardable;
 
     IterableToken(final String name, final Token token, final Encoding encoding) {
-        super(name, encoding);
-        this.token = checkNotNull(token, "token");
+        this(name, token, false, null, encoding);
     }
 
-    protected final Optional<ParseState> parse(final Environment environment, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
-        return iterate(environment.addBranch(this), stopCondition, ifIterationFails).computeResult();
+    IterableToken(final String name, final Token token, final boolean parallel, final Token sync, final Encoding encoding) {
+        super(name, encoding);
+        this.token = checkNotNull(token, "token");
+        this.sync = sync;
+        this.recordSize = parallel && sync == null ? fixedSize(token) : null;
+        this.shardable = parallel && (sync != null || recordSize != null) && MemoTable.isContextFree(token);
     }
 
     /**
      * Iteratively parse iterations of the token, given a stop condition and the logic how to handle a failed parse.
+     * <p>
+     * The iterations are parsed in a loop, so no trampoline objects are created per iteration.
      *
      * @param environment the environment to apply the parse to
-     * @param stopCondition a function to determine when to stop the iteration
+     * @param stopCondition a function to determine when to stop the iteration, that remains true once it is true
      * @param ifIterationFails a function to determine how to handle a failed parse
-     * @return a trampolined {@code Optional<ParseState>}
+     * @return a non-empty {@code Optional<ParseState>} if successful, otherwise {@code Optional.empty()}
      */
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
-        if (stopCondition.test(environment)) {
-            return complete(() -> success(environment.parseState.closeBranch(this)));
+    protected final Optional<ParseState> parse(final Environment environment, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
+        Environment current = environment.addBranch(this);
+        if (canParseConcurrently(shardable, environment)) {
+            current = parseShards(current, stopCondition);
+        }
+        while (!stopCondition.test(current)) {
+            final Optional<ParseState> nextParseState = token.parse(current);
+            if (nextParseState.isEmpty()) {
+                return ifIterationFails.apply(current);
+            }
+            current = current.withParseState(nextParseState.get().iterate());
+        }
+        return success(current.parseState.closeBranch(this));
+    }
+
+    // Returns the environment after the iterations that could be parsed in shards, from which the iterations are continued sequentially.
+    private Environment parseShards(final Environment environment, final Predicate<Environment> stopCondition) {
+        final int shardCount = Math.max(2, ForkJoinPool.getCommonPoolParallelism());
+        long shardSize = MIN_SHARD_SIZE;
+        Environment current = environment;
+        while (!stopCondition.test(current)) {
+            final Environment round = current;
+            final BigInteger size = BigInteger.valueOf(shardSize);
+            final BigInteger roundEnd = round.parseState.offset.add(size.multiply(BigInteger.valueOf(shardCount)));
+            final List<ForkJoinTask<Optional<BigInteger>>> boundaries = new ArrayList<>();
+            for (int index = 1; index < shardCount; index++) {
+                final BigInteger from = round.parseState.offset.add(size.multiply(BigInteger.valueOf(index)));
+                boundaries.add(ForkJoinTask.adapt(() -> findBoundary(round, from, from.add(size))));
+            }
+            ForkJoinTask.invokeAll(boundaries);
+            final List<BigInteger> starts = new ArrayList<>();
+            starts.add(round.parseState.offset);
+            for (final ForkJoinTask<Optional<BigInteger>> boundary : boundaries) {
+                boundary.join().ifPresent(starts::add);
+            }
+            final List<ForkJoinTask<Shard>> shards = new ArrayList<>();
+            for (int index = 0; index < starts.size(); index++) {
+                final BigInteger start = starts.get(index);
+                final BigInteger end = index + 1 < starts.size() ? starts.get(index + 1) : roundEnd;
+                shards.add(ForkJoinTask.adapt(() -> parseShard(round, start, end, stopCondition)));
+            }
+            ForkJoinTask.invokeAll(shards);
+            for (int index = 0; index < shards.size(); index++) {
+                final Shard shard = shards.get(index).join();
+                if (!shard.before.offset.equals(current.parseState.offset)) {
+                    break;
+                }
+                final Environment next = current.withParseState(current.parseState.replay(shard.before, shard.after));
+                if (index > 0 && stopCondition.test(next)) {
+                    // The shard may contain more iterations than allowed, since it was parsed without those of the shards before it.
+                    return current;
+                }
+                current = next;
+                if (!shard.complete) {
+                    return current;
+                }
+            }
+            shardSize = Math.min(shardSize * 2, MAX_SHARD_SIZE);
+        }
+        return current;
+    }
+
+    private Optional<BigInteger> findBoundary(final Environment environment, final BigInteger from, final BigInteger to) {
+        if (sync == null) {
+            final BigInteger[] records = from.subtract(environment.parseState.offset).divideAndRemainder(recordSize);
+            final BigInteger boundary = environment.parseState.offset.add(records[0].add(records[1].signum() == 0 ? ZERO : ONE).multiply(recordSize));
+            return boundary.compareTo(to) < 0 ? Optional.of(boundary) : Optional.empty();
+        }
+        for (BigInteger offset = from; offset.compareTo(to) < 0; offset = offset.add(ONE)) {
+            if (Slice.createFromSource(environment.parseState.source, offset, ONE).isEmpty()) {
+                return Optional.empty();
+            }
+            final Optional<ParseState> parseState = environment.parseState.seek(offset);
+            if (parseState.isPresent() && sync.parse(environment.withParseState(parseState.get())).isPresent()) {
+                return Optional.of(offset);
+            }
         }
-        return token
-                .parse(environment)
-                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState.iterate()), stopCondition, ifIterationFails)))
-                .orElseGet(() -> complete(() -> ifIterationFails.apply(environment)));
+        return Optional.empty();
+    }
+
+    private Shard parseShard(final Environment environment, final BigInteger start, final BigInteger end, final Predicate<Environment> stopCondition) {
+        final ParseState before = environment.parseState.seek(start).orElseThrow();
+        Environment current = environment.withParseState(before);
+        while (current.parseState.offset.compareTo(end) < 0) {
+            if (stopCondition.test(current)) {
+                return new Shard(before, current.parseState, false);
+            }
+            final Optional<ParseState> nextParseState = token.parse(current);
+            if (nextParseState.isEmpty()) {
+                return new Shard(before, current.parseState, false);
+            }
+            current = current.withParseState(nextParseState.get().iterate());
+        }
+        return new Shard(before, current.parseState, true);
+    }
+
+    // Returns the size of every successful parse of token, or null if it is not fixed.
+    private static BigInteger fixedSize(final Token token) {
+        final Class<?> type = token.getClass();
+        if (type == Def.class) {
+            final Def def = (Def) token;
+            return def.size instanceof Const && !((Const) def.size).value.equals(NOT_A_VALUE) && ((Const) def.size).value.asNumeric().signum() > 0 ? ((Const) def.size).value.asNumeric() : null;
+        }
+        if (type == Post.class) {
+            return fixedSize(((Post) token).token);
+        }
+        if (type == Seq.class) {
+            BigInteger size = ZERO;
+            for (ImmutableList<Token> list = ((Seq) token).tokens; !list.isEmpty(); list = list.tail) {
+                final BigInteger tokenSize = fixedSize(list.head);
+                if (tokenSize == null) {
+                    return null;
+                }
+                size = size.add(tokenSize);
+            }
+            return size;
+        }
+        if (type == Cho.class || type == ParCho.class) {
+            final ImmutableList<Token> tokens = ((Cho) token).tokens;
+            final BigInteger size = fixedSize(tokens.head);
+            for (ImmutableList<Token> list = tokens.tail; !list.isEmpty(); list = list.tail) {
+                if (size == null || !size.equals(fixedSize(list.head))) {
+                    return null;
+                }
+            }
+            return size;
+        }
+        return null;
     }
 
     @Override
@@ -73,15 +234,34 @@ public abstract class IterableToken extends CycleToken {
         return true;
     }
 
+    protected String makeSyncFragment() {
+        return sync == null ? "" : "," + sync;
+    }
+
     @Override
     public boolean equals(final Object obj) {
         return super.equals(obj)
-                && Objects.equals(token, ((IterableToken)obj).token);
+                && Objects.equals(token, ((IterableToken)obj).token)
+                && Objects.equals(sync, ((IterableToken)obj).sync);
     }
 
     @Override
     public int immutableHashCode() {
-        return Objects.hash(super.immutableHashCode(), token);
+        return Objects.hash(super.immutableHashCode(), token, sync);
+    }
+
+    private static final class Shard {
+
+        final ParseState before;
+        final ParseState after;
+        final boolean complete; // true if the shard ended because it reached its end, false if an iteration failed or the stop condition held
+
+        Shard(final ParseState before, final ParseState after, final boolean complete) {
+            this.before = before;
+            this.after = after;
+            this.complete = complete;
+        }
+
     }
 
 }
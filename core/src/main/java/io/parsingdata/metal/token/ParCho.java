@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.Util.failure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.encoding.Encoding;
+
+/**
+ * A {@link Cho} that parses its tokens concurrently.
+ * <p>
+ * All tokens are parsed using the common {@link ForkJoinPool}, after which
+ * the leftmost token that succeeded is selected. Tokens to the right of it
+ * are cancelled: those that have not started yet are skipped, the others
+ * stop before parsing their next nested token (see
+ * {@link Environment#cancel()}). Since every token is parsed from the same
+ * immutable {@link ParseState}, the result is the same as that of a Cho.
+ * This is only done if no callbacks are registered, since these would
+ * otherwise observe the tokens that a Cho does not parse. Otherwise a ParCho
+ * parses sequentially.
+ * <p>
+ * A ParCho reads from the {@link io.parsingdata.metal.data.ByteStream} of
+ * the input from several threads, so it must be thread-safe.
+ *
+ * @see Cho
+ */
+public class ParCho extends Cho {
+
+    public ParCho(final String name, final Encoding encoding, final Token token1, final Token token2, final Token... additionalTokens) {
+        super(name, encoding, token1, token2, additionalTokens);
+    }
+
+    @Override
+    Optional<ParseState> parseTokens(final Environment environment, final byte[] prefix) {
+        if (!environment.callbacks.isEmpty()) {
+            return super.parseTokens(environment, prefix);
+        }
+        final Environment cancellable = environment.cancellable();
+        final List<ForkJoinTask<Optional<ParseState>>> parses = new ArrayList<>();
+        ImmutableList<PrefixGuard> guardList = guards;
+        for (ImmutableList<Token> list = tokens; !list.isEmpty(); list = list.tail, guardList = guardList.tail) {
+            if (prefix == null || guardList.head.matches(prefix)) {
+                final Token token = list.head;
+                parses.add(ForkJoinTask.adapt(() -> token.parse(cancellable)));
+            }
+        }
+        for (final ForkJoinTask<Optional<ParseState>> parse : parses) {
+            parse.fork();
+        }
+        for (int index = 0; index < parses.size(); index++) {
+            final Optional<ParseState> result = parses.get(index).join();
+            if (result.isPresent()) {
+                // The parses that have not started are skipped, the others stop at the next token they parse.
+                cancellable.cancel();
+                for (int remaining = index + 1; remaining < parses.size(); remaining++) {
+                    parses.get(remaining).cancel(false);
+                }
+                return result;
+            }
+        }
+        return failure();
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.SingleValueExpression;
+
+/**
+ * A {@link RepN} that parses its iterations in shards, see
+ * {@link IterableToken}.
+ * <p>
+ * A ParRepN consists of a <code>token</code>, an <code>n</code> and an
+ * optional <code>sync</code> (a {@link Token}) that marks the start of a
+ * record. If <code>sync</code> is <code>null</code>, <code>token</code> must
+ * have a fixed size for the iterations to be parsed in shards. The result
+ * is the same as that of a RepN.
+ * <p>
+ * A ParRepN reads from the {@link io.parsingdata.metal.data.ByteStream} of
+ * the input from several threads, so it must be thread-safe.
+ *
+ * @see ParRep
+ */
+public class ParRepN extends RepN {
+
+    public ParRepN(final String name, final Token token, final SingleValueExpression n, final Token sync, final Encoding encoding) {
+        super(name, token, n, sync, encoding);
+    }
+
+}
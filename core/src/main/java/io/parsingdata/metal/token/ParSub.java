@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.Util.failure;
+import static io.parsingdata.metal.Util.success;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import io.parsingdata.metal.Util;
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.MemoTable;
+import io.parsingdata.metal.data.ParseReference;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
+
+/**
+ * A {@link Sub} that parses <code>token</code> at all locations
+ * concurrently.
+ * <p>
+ * The locations are parsed using the common {@link ForkJoinPool}, after
+ * which the results are added in the order of the locations. This is only
+ * done if <code>token</code> is context free (see
+ * {@link MemoTable#isContextFree(Token)}), no callbacks are registered and
+ * the {@link ParseState} does not drop values. The result is then the same
+ * as that of a Sub, including the detection of locations that were already
+ * parsed. Otherwise a ParSub parses sequentially.
+ * <p>
+ * A ParSub reads from the {@link io.parsingdata.metal.data.ByteStream} of
+ * the input from several threads, so it must be thread-safe.
+ *
+ * @see Sub
+ */
+public class ParSub extends Sub {
+
+    private final boolean contextFree;
+
+    public ParSub(final String name, final Token token, final ValueExpression offsets, final Encoding encoding) {
+        super(name, token, offsets, encoding);
+        this.contextFree = MemoTable.isContextFree(token);
+    }
+
+    @Override
+    Optional<ParseState> iterate(final Environment environment, final ImmutableList<Value> offsetList) {
+        if (offsetList.size > 1 && canParseConcurrently(contextFree, environment)) {
+            return iterateParallel(environment, offsetList);
+        }
+        return super.iterate(environment, offsetList);
+    }
+
+    private Optional<ParseState> iterateParallel(final Environment environment, final ImmutableList<Value> offsetList) {
+        final List<ForkJoinTask<Optional<ParseState>>> parses = new ArrayList<>();
+        for (ImmutableList<Value> list = offsetList; !list.isEmpty(); list = list.tail) {
+            if (list.head.equals(NOT_A_VALUE)) {
+                return failure();
+            }
+            final BigInteger offsetValue = list.head.asNumeric();
+            parses.add(ForkJoinTask.adapt(() -> environment.parseState
+                .seek(offsetValue)
+                .map(newParseState -> token.parse(environment.withParseState(newParseState)))
+                .orElseGet(Util::failure)));
+        }
+        ForkJoinTask.invokeAll(parses);
+        ParseState current = environment.parseState;
+        int index = 0;
+        for (ImmutableList<Value> list = offsetList; !list.isEmpty(); list = list.tail, index++) {
+            final ParseReference parseReference = new ParseReference(list.head.asNumeric(), current.source, token.getCanonical(current));
+            if (current.containsReference(parseReference)) {
+                current = current.createCycle(parseReference);
+                continue;
+            }
+            final Optional<ParseState> nextParseState = parses.get(index).join();
+            if (nextParseState.isEmpty()) {
+                return failure();
+            }
+            current = current.replay(environment.parseState, nextParseState.get());
+        }
+        return success(current.closeBranch(this));
+    }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.expression.Expression;
+import io.parsingdata.metal.expression.comparison.Eq;
+import io.parsingdata.metal.expression.logical.And;
+import io.parsingdata.metal.expression.logical.Not;
+import io.parsingdata.metal.expression.logical.Or;
+import io.parsingdata.metal.expression.value.Bytes;
+import io.parsingdata.metal.expression.value.Const;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.expression.value.reference.Last;
+import io.parsingdata.metal.expression.value.reference.Ref.NameRef;
+
+/**
+ * A necessary condition on the bytes at the current offset for a
+ * {@link Token} to parse successfully.
+ * <p>
+ * A PrefixGuard consists of a set of allowed byte values for each of the
+ * first <code>length</code> bytes. It is derived from the structure of a
+ * token: leading {@link Def}s with a constant size, optionally wrapped in a
+ * {@link Post} that compares the parsed value to a constant using
+ * {@link Eq}, {@link Not}, {@link And} and {@link Or}. Any other token or
+ * predicate leaves the bytes it covers unconstrained. A guard is an
+ * over-approximation: if it does not match, the token cannot succeed, but
+ * if it matches, the token still has to be parsed.
+ * <p>
+ * A guard normally applies to the bytes starting at the current offset. A
+ * guard derived by {@link #ofTerminator(String, Token)} may instead start at
+ * the last byte of the value parsed by a {@link DefUntil}, which is the byte
+ * before the offset at which its terminator is parsed.
+ * <p>
+ * Only tokens of exactly these classes are analyzed, so that subclasses
+ * with different parsing behaviour are never skipped incorrectly.
+ */
+final class PrefixGuard {
+
+    static final int MAX_LENGTH = 8;
+    static final PrefixGuard NONE = new PrefixGuard(new BitSet[0], false, 0);
+
+    private static final int BYTE_VALUES = 256;
+
+    private final BitSet[] allowed;
+    private final boolean exact; // true if a successful parse always consumes exactly allowed.length bytes
+    final int start;
+
+    private PrefixGuard(final BitSet[] allowed, final boolean exact, final int start) {
+        this.allowed = allowed;
+        this.exact = exact;
+        this.start = start;
+    }
+
+    private PrefixGuard(final BitSet[] allowed, final boolean exact) {
+        this(allowed, exact, 0);
+    }
+
+    /**
+     * Derives a guard for the terminator of a {@link DefUntil} with the
+     * provided name. Next to the guards derived by {@link #of(Token)}, this
+     * recognizes terminators that test the bits of the last byte of the
+     * value parsed by the DefUntil, such as
+     * <code>post(EMPTY, eq(and(last(bytes(last(ref(name)))), con(128)), con(0)))</code>.
+     * Such a guard starts one byte before the offset of the terminator and is
+     * only valid if the value parsed by the DefUntil is not empty.
+     */
+    static PrefixGuard ofTerminator(final String name, final Token terminator) {
+        final PrefixGuard guard = of(terminator);
+        if (guard.length() > 0) {
+            return guard;
+        }
+        if (terminator.getClass() != Post.class || ((Post) terminator).token.getClass() != Def.class) {
+            return NONE;
+        }
+        final Def def = (Def) ((Post) terminator).token;
+        if (!(def.size instanceof Const) || ((Const) def.size).value.equals(NOT_A_VALUE) || ((Const) def.size).value.asNumeric().signum() != 0) {
+            return NONE;
+        }
+        final BitSet allowed = allowedByLastByteTest(name, ((Post) terminator).predicate);
+        return allowed == null ? NONE : new PrefixGuard(new BitSet[] { allowed }, false, -1);
+    }
+
+    private static BitSet allowedByLastByteTest(final String name, final Expression predicate) {
+        if (predicate.getClass() != Eq.class || ((Eq) predicate).value == null || !(((Eq) predicate).predicate instanceof Const)) {
+            return null;
+        }
+        final ValueExpression value = unwrapLast(((Eq) predicate).value);
+        if (value.getClass() != io.parsingdata.metal.expression.value.bitwise.And.class) {
+            return null;
+        }
+        final io.parsingdata.metal.expression.value.bitwise.And and = (io.parsingdata.metal.expression.value.bitwise.And) value;
+        if (!isLastByteOf(name, and.left) || !(and.right instanceof Const)) {
+            return null;
+        }
+        final Value mask = ((Const) and.right).value;
+        final Value expected = ((Const) ((Eq) predicate).predicate).value;
+        if (mask.equals(NOT_A_VALUE) || expected.equals(NOT_A_VALUE) || mask.length().intValueExact() != 1 || expected.length().intValueExact() != 1) {
+            return null;
+        }
+        final int maskByte = mask.value()[0] & 0xff;
+        final int expectedByte = expected.value()[0] & 0xff;
+        final BitSet allowed = new BitSet(BYTE_VALUES);
+        for (int candidate = 0; candidate < BYTE_VALUES; candidate++) {
+            allowed.set(candidate, (candidate & maskByte) == expectedByte);
+        }
+        return allowed;
+    }
+
+    private static ValueExpression unwrapLast(final ValueExpression expression) {
+        return expression.getClass() == Last.class ? ((Last) expression).operand : expression;
+    }
+
+    private static boolean isLastByteOf(final String name, final ValueExpression expression) {
+        if (expression.getClass() != Last.class || ((Last) expression).operand.getClass() != Bytes.class) {
+            return false;
+        }
+        final ValueExpression value = ((Bytes) ((Last) expression).operand).operand;
+        if (value.getClass() != Last.class || ((Last) value).operand.getClass() != NameRef.class) {
+            return false;
+        }
+        final NameRef ref = (NameRef) ((Last) value).operand;
+        return (ref.limit == null || ref.limit instanceof Const && isOne(((Const) ref.limit).value))
+            && ref.scope == null && ref.references.size == 1 && ref.references.head.equals(name);
+    }
+
+    private static boolean isOne(final Value value) {
+        return !value.equals(NOT_A_VALUE) && value.asNumeric().equals(BigInteger.ONE);
+    }
+
+    static PrefixGuard of(final Token token) {
+        if (token.getClass() == Def.class) {
+            return ofDef((Def) token, null);
+        }
+        if (token.getClass() == Post.class && ((Post) token).token.getClass() == Def.class) {
+            return ofDef((Def) ((Post) token).token, ((Post) token).predicate);
+        }
+        if (token.getClass() == Seq.class) {
+            return ofSeq(((Seq) token).tokens);
+        }
+        if (token.getClass() == Cho.class || token.getClass() == ParCho.class) {
+            return ofCho(((Cho) token).tokens);
+        }
+        return NONE;
+    }
+
+    private static PrefixGuard ofDef(final Def def, final Expression predicate) {
+        if (!(def.size instanceof Const) || ((Const) def.size).value.equals(NOT_A_VALUE)) {
+            return NONE;
+        }
+        final BigInteger size = ((Const) def.size).value.asNumeric();
+        if (size.signum() <= 0) {
+            return NONE;
+        }
+        final int length = size.min(BigInteger.valueOf(MAX_LENGTH)).intValueExact();
+        final BitSet[] constrained = predicate == null ? null : allowed(predicate, size);
+        final BitSet[] allowed = new BitSet[length];
+        for (int i = 0; i < length; i++) {
+            allowed[i] = constrained == null ? all() : constrained[i];
+        }
+        return new PrefixGuard(allowed, size.compareTo(BigInteger.valueOf(length)) == 0);
+    }
+
+    /**
+     * Returns the byte values for which a value of size one satisfies the
+     * predicate, or <code>null</code> if the predicate is not analyzed here.
+     */
+    static BitSet byteClass(final Expression predicate) {
+        final BitSet[] allowed = allowed(predicate, BigInteger.ONE);
+        return allowed == null ? null : allowed[0];
+    }
+
+    /**
+     * Returns the allowed byte values per position of a value of the given
+     * size that satisfies the predicate, or <code>null</code> if the
+     * predicate does not constrain them in a way that is analyzed here.
+     */
+    private static BitSet[] allowed(final Expression predicate, final BigInteger size) {
+        if (predicate.getClass() == Eq.class) {
+            return allowedByEq((Eq) predicate, size);
+        }
+        if (predicate.getClass() == Not.class && ((Not) predicate).operand.getClass() == Eq.class && size.equals(BigInteger.ONE)) {
+            final BitSet[] equal = allowedByEq((Eq) ((Not) predicate).operand, size);
+            if (equal != null) {
+                equal[0].flip(0, BYTE_VALUES);
+            }
+            return equal;
+        }
+        if (predicate.getClass() == And.class) {
+            return combine(allowed(((And) predicate).left, size), allowed(((And) predicate).right, size), true);
+        }
+        if (predicate.getClass() == Or.class) {
+            return combine(allowed(((Or) predicate).left, size), allowed(((Or) predicate).right, size), false);
+        }
+        return null;
+    }
+
+    private static BitSet[] allowedByEq(final Eq eq, final BigInteger size) {
+        if (eq.value != null || !(eq.predicate instanceof Const)) {
+            return null;
+        }
+        final Value value = ((Const) eq.predicate).value;
+        if (value.equals(NOT_A_VALUE) || value.length().compareTo(size) != 0) {
+            return null;
+        }
+        final byte[] bytes = value.value();
+        final BitSet[] allowed = new BitSet[Math.min(bytes.length, MAX_LENGTH)];
+        for (int i = 0; i < allowed.length; i++) {
+            allowed[i] = new BitSet(BYTE_VALUES);
+            allowed[i].set(bytes[i] & 0xff);
+        }
+        return allowed;
+    }
+
+    private static BitSet[] combine(final BitSet[] left, final BitSet[] right, final boolean intersect) {
+        if (left == null || right == null) {
+            return intersect ? (left == null ? right : left) : null;
+        }
+        for (int i = 0; i < left.length; i++) {
+            if (intersect) {
+                left[i].and(right[i]);
+            }
+            else {
+                left[i].or(right[i]);
+            }
+        }
+        return left;
+    }
+
+    private static PrefixGuard ofSeq(final ImmutableList<Token> tokens) {
+        BitSet[] allowed = new BitSet[0];
+        boolean exact = true;
+        for (ImmutableList<Token> list = tokens; !list.isEmpty() && exact && allowed.length < MAX_LENGTH; list = list.tail) {
+            final PrefixGuard guard = of(list.head);
+            final int offset = allowed.length;
+            allowed = Arrays.copyOf(allowed, Math.min(offset + guard.allowed.length, MAX_LENGTH));
+            System.arraycopy(guard.allowed, 0, allowed, offset, allowed.length - offset);
+            exact = guard.exact && allowed.length == offset + guard.allowed.length;
+        }
+        return new PrefixGuard(allowed, exact);
+    }
+
+    private static PrefixGuard ofCho(final ImmutableList<Token> tokens) {
+        BitSet[] allowed = null;
+        for (ImmutableList<Token> list = tokens; !list.isEmpty(); list = list.tail) {
+            final PrefixGuard guard = of(list.head);
+            if (allowed == null) {
+                allowed = guard.allowed.clone();
+            }
+            else {
+                allowed = Arrays.copyOf(allowed, Math.min(allowed.length, guard.allowed.length));
+            }
+            for (int i = 0; i < allowed.length; i++) {
+                allowed[i] = (BitSet) allowed[i].clone();
+                allowed[i].or(guard.allowed[i]);
+            }
+        }
+        return allowed == null ? NONE : new PrefixGuard(allowed, false);
+    }
+
+    private static BitSet all() {
+        final BitSet all = new BitSet(BYTE_VALUES);
+        all.set(0, BYTE_VALUES);
+        return all;
+    }
+
+    int length() {
+        return allowed.length;
+    }
+
+    /**
+     * @return <code>true</code> if this guard allows any value for each of its bytes
+     */
+    boolean isTrivial() {
+        for (final BitSet position : allowed) {
+            if (position.cardinality() != BYTE_VALUES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the bytes at the current offset allow the guarded token
+     * to succeed. The <code>prefix</code> contains the bytes available at the
+     * current offset, up to the length of the longest guard being tested.
+     */
+    boolean matches(final byte[] prefix) {
+        return matches(prefix, 0);
+    }
+
+    /**
+     * Returns whether the bytes in <code>data</code> starting at
+     * <code>position</code> match this guard.
+     */
+    boolean matches(final byte[] data, final int position) {
+        if (data.length - position < allowed.length) {
+            return false;
+        }
+        for (int i = 0; i < allowed.length; i++) {
+            if (!allowed[i].get(data[position + i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -32,6 +32,7 @@ import io.parsingdata.metal.encoding.Encoding;
  * as parsing succeeds. Since any amount of iterations is acceptable
  * (including zero), parsing a Rep will always succeed.
  *
+ * @see ParRep
  * @see RepN
  */
 public class Rep extends IterableToken {
@@ -40,6 +41,11 @@ public class Rep extends IterableToken {
         super(name, token, encoding);
     }
 
+    // Creates a Rep that parses its iterations in shards, see ParRep.
+    Rep(final String name, final Token token, final Token sync, final Encoding encoding) {
+        super(name, token, true, sync, encoding);
+    }
+
     @Override
     protected Optional<ParseState> parseImpl(Environment environment) {
         return parse(environment, env -> false, env -> success(env.parseState.closeBranch(this)));
@@ -47,7 +53,7 @@ public class Rep extends IterableToken {
 
     @Override
     public String toString() {
-        return getClass().getSimpleName() + "(" + makeNameFragment() + token + ")";
+        return getClass().getSimpleName() + "(" + makeNameFragment() + token + makeSyncFragment() + ")";
     }
 
 }
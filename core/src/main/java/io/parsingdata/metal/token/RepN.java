@@ -38,6 +38,7 @@ import io.parsingdata.metal.expression.value.ValueExpression;
  * evaluated. The token is then parsed for an amount of times equal to the
  * evaluated value of <code>n</code>. RepN succeeds if this succeeds.
  *
+ * @see ParRepN
  * @see Rep
  * @see ValueExpression
  */
@@ -50,6 +51,12 @@ public class RepN extends IterableToken {
         this.n = checkNotNull(n, "n");
     }
 
+    // Creates a RepN that parses its iterations in shards, see ParRepN.
+    RepN(final String name, final Token token, final SingleValueExpression n, final Token sync, final Encoding encoding) {
+        super(name, token, true, sync, encoding);
+        this.n = checkNotNull(n, "n");
+    }
+
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
         return n.evalSingle(environment.parseState, environment.encoding)
@@ -59,7 +66,7 @@ public class RepN extends IterableToken {
 
     @Override
     public String toString() {
-        return getClass().getSimpleName() + "(" + makeNameFragment() + token + "," + n + ")";
+        return getClass().getSimpleName() + "(" + makeNameFragment() + token + "," + n + makeSyncFragment() + ")";
     }
 
     @Override
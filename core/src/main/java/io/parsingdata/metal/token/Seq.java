@@ -17,18 +17,15 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkContainsNoNulls;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.failure;
 import static io.parsingdata.metal.Util.success;
 import static io.parsingdata.metal.data.ImmutableList.create;
 
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
-import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseState;
@@ -54,17 +51,15 @@ public class Seq extends CycleToken {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), tokens).computeResult();
-    }
-
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Token> list) {
-        if (list.isEmpty()) {
-            return complete(() -> success(environment.parseState.closeBranch(this)));
+        Environment current = environment.addBranch(this);
+        for (ImmutableList<Token> list = tokens; !list.isEmpty(); list = list.tail) {
+            final Optional<ParseState> nextParseState = list.head.parse(current);
+            if (nextParseState.isEmpty()) {
+                return failure();
+            }
+            current = current.withParseState(nextParseState.get());
         }
-        return list.head
-            .parse(environment)
-            .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState), list.tail)))
-            .orElseGet(() -> complete(Util::failure));
+        return success(current.parseState.closeBranch(this));
     }
 
     @Override
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+import static io.parsingdata.metal.Util.checkNotEmpty;
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.failure;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.data.Slice;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.Expression;
+
+/**
+ * A {@link Token} that specifies a value consisting of a run of bytes that
+ * each satisfy a predicate.
+ * <p>
+ * A Span consists of a <code>predicate</code> (an {@link Expression}) that
+ * describes a class of byte values. Parsing consumes the longest run of
+ * bytes at the current offset that belong to this class and adds it as a
+ * single value. Parsing fails if the first byte does not belong to the
+ * class or if no input is available.
+ * <p>
+ * The <code>predicate</code> is evaluated as it would be in a {@link Post}
+ * wrapping a {@link Def} of size one, so <code>eq(con(0))</code> accepts
+ * zero bytes. It is evaluated at most once for each distinct byte value in
+ * the run, so it must only depend on the value of the byte itself.
+ * Predicates that compare the byte to constants are analyzed once, when the
+ * Span is created. This allows the input to be read and scanned in bulk,
+ * instead of producing a value for every byte as
+ * <code>rep(def(name, con(1), predicate))</code> does.
+ *
+ * @see Expression
+ */
+public class Span extends Token {
+
+    private static final int BYTE_VALUES = 256;
+    private static final int MIN_SCAN_WINDOW = 64;
+    private static final int MAX_SCAN_WINDOW = 64 * 1024;
+
+    public final Expression predicate;
+    private final BitSet byteClass; // null if the predicate must be evaluated during parsing
+
+    public Span(final String name, final Expression predicate, final Encoding encoding) {
+        super(checkNotEmpty(name, "name"), encoding);
+        this.predicate = checkNotNull(predicate, "predicate");
+        this.byteClass = PrefixGuard.byteClass(predicate);
+    }
+
+    @Override
+    protected Optional<ParseState> parseImpl(final Environment environment) {
+        final ParseState parseState = environment.parseState;
+        final BitSet evaluated = new BitSet(BYTE_VALUES);
+        final BitSet accepted = byteClass == null ? new BitSet(BYTE_VALUES) : byteClass;
+        if (byteClass != null) {
+            evaluated.set(0, BYTE_VALUES);
+        }
+        BigInteger size = ZERO;
+        int windowSize = MIN_SCAN_WINDOW;
+        while (true) {
+            final BigInteger windowOffset = parseState.offset.add(size);
+            final byte[] window = readWindow(parseState, windowOffset, windowSize);
+            int position = 0;
+            while (position < window.length && accepts(environment, evaluated, accepted, windowOffset, position, window[position] & 0xff)) {
+                position++;
+            }
+            size = size.add(BigInteger.valueOf(position));
+            if (window.length == 0 || position < window.length) {
+                break;
+            }
+            windowSize = Math.min(windowSize * 2, MAX_SCAN_WINDOW);
+        }
+        if (size.signum() == 0) {
+            return failure();
+        }
+        final BigInteger dataSize = size;
+        return parseState
+            .slice(dataSize)
+            .flatMap(slice -> parseState.add(new ParseValue(environment.scopePath, this, slice, environment.encoding)).skip(dataSize));
+    }
+
+    private boolean accepts(final Environment environment, final BitSet evaluated, final BitSet accepted, final BigInteger windowOffset, final int position, final int value) {
+        if (!evaluated.get(value)) {
+            evaluated.set(value);
+            accepted.set(value, Slice.createFromSource(environment.parseState.source, windowOffset.add(BigInteger.valueOf(position)), ONE)
+                .map(slice -> predicate.eval(environment.parseState.add(new ParseValue(environment.scopePath, this, slice, environment.encoding)), environment.encoding))
+                .orElse(false));
+        }
+        return accepted.get(value);
+    }
+
+    private static byte[] readWindow(final ParseState parseState, final BigInteger offset, final int windowSize) {
+        for (int length = windowSize; length > 0; length /= 2) {
+            final Optional<Slice> slice = Slice.createFromSource(parseState.source, offset, BigInteger.valueOf(length));
+            if (slice.isPresent()) {
+                return slice.get().getData();
+            }
+        }
+        return new byte[0];
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + makeNameFragment() + predicate + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return super.equals(obj)
+            && Objects.equals(predicate, ((Span)obj).predicate);
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(super.immutableHashCode(), predicate);
+    }
+
+}
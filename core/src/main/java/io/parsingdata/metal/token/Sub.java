@@ -17,9 +17,8 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.failure;
 import static io.parsingdata.metal.Util.success;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
@@ -27,7 +26,6 @@ import java.math.BigInteger;
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
@@ -49,6 +47,7 @@ import io.parsingdata.metal.expression.value.ValueExpression;
  * <code>offsets</code> evaluates to a list of locations that is either empty
  * or contains an invalid value.
  *
+ * @see ParSub
  * @see ValueExpression
  */
 public class Sub extends CycleToken {
@@ -64,25 +63,29 @@ public class Sub extends CycleToken {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), offsets.eval(environment.parseState, environment.encoding)).computeResult()
+        return iterate(environment.addBranch(this), offsets.eval(environment.parseState, environment.encoding))
             .flatMap(nextParseState -> nextParseState.seek(environment.parseState.offset));
     }
 
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Value> offsetList) {
-        if (offsetList.isEmpty()) {
-            return complete(() -> success(environment.parseState.closeBranch(this)));
+    // Parses token at all offsets in order. Overridden by ParSub to parse them concurrently.
+    Optional<ParseState> iterate(final Environment environment, final ImmutableList<Value> offsetList) {
+        Environment current = environment;
+        for (ImmutableList<Value> list = offsetList; !list.isEmpty(); list = list.tail) {
+            if (list.head.equals(NOT_A_VALUE)) {
+                return failure();
+            }
+            final Optional<ParseState> nextParseState = parse(current, list.head.asNumeric());
+            if (nextParseState.isEmpty()) {
+                return failure();
+            }
+            current = current.withParseState(nextParseState.get());
         }
-        if (offsetList.head.equals(NOT_A_VALUE)) {
-            return complete(Util::failure);
-        }
-        return parse(environment, offsetList.head.asNumeric())
-            .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState), offsetList.tail)))
-            .orElseGet(() -> complete(Util::failure));
+        return success(current.parseState.closeBranch(this));
     }
 
     private Optional<ParseState> parse(final Environment environment, final BigInteger offsetValue) {
         final ParseReference parseReference = new ParseReference(offsetValue, environment.parseState.source, token.getCanonical(environment.parseState));
-        if (environment.parseState.references.contains(parseReference)) {
+        if (environment.parseState.containsReference(parseReference)) {
             return success(environment.parseState.createCycle(parseReference));
         }
         return environment.parseState
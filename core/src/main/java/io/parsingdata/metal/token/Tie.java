@@ -17,17 +17,14 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.failure;
 import static io.parsingdata.metal.Util.success;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
-import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.DataExpressionSource;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
@@ -63,19 +60,22 @@ public class Tie extends Token {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), dataExpression.eval(environment.parseState, environment.encoding), 0, environment.parseState).computeResult();
-    }
-
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Value> values, final int index, final ParseState returnParseState) {
-        if (values.isEmpty()) {
-            return complete(() -> success(new ParseState(environment.parseState.closeBranch(this).order, environment.parseState.cache, returnParseState.source, returnParseState.offset, returnParseState.iterations, returnParseState.references)));
-        }
-        if (values.head.equals(NOT_A_VALUE)) {
-            return complete(Util::failure);
+        final ImmutableList<Value> values = dataExpression.eval(environment.parseState, environment.encoding);
+        Environment current = environment.addBranch(this);
+        int index = 0;
+        for (ImmutableList<Value> list = values; !list.isEmpty(); list = list.tail) {
+            if (list.head.equals(NOT_A_VALUE)) {
+                return failure();
+            }
+            final DataExpressionSource source = DataExpressionSource.createFromValue(dataExpression, index, environment.parseState, environment.encoding, list.head);
+            final Optional<ParseState> nextParseState = token.parse(current.withParseState(current.parseState.withSource(source)));
+            if (nextParseState.isEmpty()) {
+                return failure();
+            }
+            current = current.withParseState(nextParseState.get());
+            index++;
         }
-        return token.parse(environment.withParseState(environment.parseState.withSource(new DataExpressionSource(dataExpression, index, environment.parseState, environment.encoding))))
-                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState), values.tail, index + 1, returnParseState)))
-                .orElseGet(() -> complete(Util::failure));
+        return success(current.parseState.closeBranch(this).returnTo(environment.parseState));
     }
 
     @Override
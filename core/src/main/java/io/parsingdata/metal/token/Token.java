@@ -23,6 +23,7 @@ import static io.parsingdata.metal.data.callback.Callbacks.success;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Util;
@@ -54,6 +55,10 @@ import io.parsingdata.metal.expression.value.reference.Ref;
  * overrides outer encoding specifications and is passed to nested tokens
  * instead. As such it can itself be overridden by explicit specifications in
  * nested tokens.
+ * <p>
+ * A parse whose {@link Environment} has been cancelled (see
+ * {@link Environment#cancel()}) throws a {@link CancellationException}
+ * before parsing the next token, so that it stops without leaving a result.
  */
 public abstract class Token extends ImmutableObject {
 
@@ -70,8 +75,11 @@ public abstract class Token extends ImmutableObject {
     }
 
     public Optional<ParseState> parse(final Environment environment) {
+        if (environment.isCancelled()) {
+            throw new CancellationException();
+        }
         final Environment activeEnvironment = this.encoding != null ? environment.withEncoding(this.encoding) : environment;
-        final Optional<ParseState> result = parseImpl(activeEnvironment.extendScope(name));
+        final Optional<ParseState> result = environment.memoTable.parse(this, activeEnvironment.extendScope(name), this::parseImpl);
         environment.callbacks.handle(this, result
             .map(after -> success(this, environment.parseState, after))
             .orElseGet(() -> failure(this, environment.parseState)));
@@ -17,18 +17,13 @@
 
 package io.parsingdata.metal.token;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.failure;
 
 import java.util.Objects;
 import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.data.Environment;
-import io.parsingdata.metal.data.ImmutableList;
-import io.parsingdata.metal.data.ParseItem;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.encoding.Encoding;
 
@@ -41,7 +36,9 @@ import io.parsingdata.metal.encoding.Encoding;
  * for use of this token is to recursively define a linked list.
  * <p>
  * The referenced token is located in the current parse state by traversing it
- * backwards until it is located. Parsing will fail if it is not found.
+ * backwards until it is located. Parsing will fail if it is not found. The
+ * traversal is answered from an index kept in the {@link ParseState}, so
+ * its cost depends on the nesting depth rather than the size of the parse state.
  */
 public class TokenRef extends Token {
 
@@ -64,26 +61,12 @@ public class TokenRef extends Token {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return lookup(ImmutableList.create(environment.parseState.order), referenceName).computeResult().parse(environment);
-    }
-
-    private Trampoline<Token> lookup(final ImmutableList<ParseItem> items, final String referenceName) {
-        if (items.isEmpty()) {
-            return complete(() -> LOOKUP_FAILED);
-        }
-        final ParseItem item = items.head;
-        if (item.getDefinition().name.equals(referenceName)) {
-            return complete(item::getDefinition);
-        }
-        if (item.isGraph() && !item.asGraph().isEmpty()) {
-            return intermediate(() -> lookup(items.tail.add(item.asGraph().tail).add(item.asGraph().head), referenceName));
-        }
-        return intermediate(() -> lookup(items.tail, referenceName));
+        return getCanonical(environment.parseState).parse(environment);
     }
 
     @Override
     public Token getCanonical(final ParseState parseState) {
-        return lookup(ImmutableList.create(parseState.order), referenceName).computeResult();
+        return parseState.findDefinition(referenceName).orElse(LOOKUP_FAILED);
     }
 
     @Override
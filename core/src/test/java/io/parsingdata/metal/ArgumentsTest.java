@@ -60,6 +60,10 @@ import io.parsingdata.metal.expression.value.reference.Offset;
 import io.parsingdata.metal.token.Cho;
 import io.parsingdata.metal.token.Def;
 import io.parsingdata.metal.token.DefUntil;
+import io.parsingdata.metal.token.ParCho;
+import io.parsingdata.metal.token.ParRep;
+import io.parsingdata.metal.token.ParRepN;
+import io.parsingdata.metal.token.ParSub;
 import io.parsingdata.metal.token.Pre;
 import io.parsingdata.metal.token.Rep;
 import io.parsingdata.metal.token.RepN;
@@ -121,15 +125,25 @@ public class ArgumentsTest {
             { Cho.class, new Object[] { VALID_NAME, null, VALID_T, null, new Token[] { VALID_T } } },
             { Cho.class, new Object[] { VALID_NAME, null, VALID_T, VALID_T, new Token[] { null } } },
             { Cho.class, new Object[] { VALID_NAME, null, VALID_T, VALID_T, null } },
+            { ParCho.class, new Object[] { null, null, VALID_T, VALID_T, new Token[] { VALID_T } } },
+            { ParCho.class, new Object[] { VALID_NAME, null, null, VALID_T, new Token[] { VALID_T } } },
+            { ParCho.class, new Object[] { VALID_NAME, null, VALID_T, null, new Token[] { VALID_T } } },
+            { ParCho.class, new Object[] { VALID_NAME, null, VALID_T, VALID_T, new Token[] { null } } },
+            { ParCho.class, new Object[] { VALID_NAME, null, VALID_T, VALID_T, null } },
             { Def.class, new Object[] { VALID_NAME, null, null } },
             { Def.class, new Object[] { null, VALID_VE, null } },
             { Pre.class, new Object[] { null, VALID_T, null, null } },
             { Pre.class, new Object[] { VALID_NAME, null, null, null } },
             { Rep.class, new Object[] { null, VALID_T, null } },
             { Rep.class, new Object[] { VALID_NAME, null, null } },
+            { ParRep.class, new Object[] { null, VALID_T, null, null } },
+            { ParRep.class, new Object[] { VALID_NAME, null, null, null } },
             { RepN.class, new Object[] { null, VALID_T, VALID_VE, null } },
             { RepN.class, new Object[] { VALID_NAME, null, VALID_VE, null } },
             { RepN.class, new Object[] { VALID_NAME, VALID_T, null, null } },
+            { ParRepN.class, new Object[] { null, VALID_T, VALID_VE, null, null } },
+            { ParRepN.class, new Object[] { VALID_NAME, null, VALID_VE, null, null } },
+            { ParRepN.class, new Object[] { VALID_NAME, VALID_T, null, null, null } },
             { Seq.class, new Object[] { null, null, VALID_T, VALID_T, new Token[] { VALID_T } } },
             { Seq.class, new Object[] { VALID_NAME, null, null, VALID_T, new Token[] { VALID_T } } },
             { Seq.class, new Object[] { VALID_NAME, null, VALID_T, null, new Token[] { VALID_T } } },
@@ -138,6 +152,9 @@ public class ArgumentsTest {
             { Sub.class, new Object[] { null, VALID_T, VALID_VE, null } },
             { Sub.class, new Object[] { VALID_NAME, VALID_T, null, null } },
             { Sub.class, new Object[] { VALID_NAME, null, VALID_VE, null } },
+            { ParSub.class, new Object[] { null, VALID_T, VALID_VE, null } },
+            { ParSub.class, new Object[] { VALID_NAME, VALID_T, null, null } },
+            { ParSub.class, new Object[] { VALID_NAME, null, VALID_VE, null } },
             { While.class, new Object[] { null, VALID_T, null, null } },
             { While.class, new Object[] { VALID_NAME, null, null, null } },
             { TokenRef.class, new Object[] { VALID_NAME, null, null } },
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ImmutableMap;
+
+public class ImmutableMapTest {
+
+    private static final int COUNT = 5000;
+
+    @Test
+    public void putAndGet() {
+        final ImmutableMap<String, Integer> empty = new ImmutableMap<>();
+        final ImmutableMap<String, Integer> map = empty.put("a", 1).put("b", 2);
+        assertEquals(1, map.get("a"));
+        assertEquals(2, map.get("b"));
+        assertNull(map.get("c"));
+        assertEquals(3, map.getOrDefault("c", 3));
+        assertEquals(2, map.size);
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.containsKey("a"));
+    }
+
+    @Test
+    public void putDoesNotModifyOriginal() {
+        final ImmutableMap<String, Integer> first = new ImmutableMap<String, Integer>().put("a", 1);
+        final ImmutableMap<String, Integer> second = first.put("a", 2).put("b", 3);
+        assertEquals(1, first.get("a"));
+        assertNull(first.get("b"));
+        assertEquals(1, first.size);
+        assertEquals(2, second.get("a"));
+        assertEquals(2, second.size);
+    }
+
+    @Test
+    public void collidingHashCodes() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        final ImmutableMap<String, Integer> map = new ImmutableMap<String, Integer>().put("Aa", 1).put("BB", 2).put("AaAa", 3).put("BBBB", 4).put("AaBB", 5);
+        assertEquals(5, map.size);
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(3, map.get("AaAa"));
+        assertEquals(4, map.get("BBBB"));
+        assertEquals(5, map.get("AaBB"));
+        assertNull(map.get("BBAa"));
+        final ImmutableMap<String, Integer> replaced = map.put("BB", 6);
+        assertEquals(5, replaced.size);
+        assertEquals(6, replaced.get("BB"));
+        assertEquals(2, map.get("BB"));
+    }
+
+    @Test
+    public void manyKeys() {
+        ImmutableMap<Integer, Integer> map = new ImmutableMap<>();
+        for (int i = 0; i < COUNT; i++) {
+            map = map.put(i * 31, i);
+        }
+        assertEquals(COUNT, map.size);
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i, map.get(i * 31));
+        }
+        final int[] sum = { 0 };
+        map.forEach((key, value) -> sum[0] += value);
+        assertEquals(COUNT * (COUNT - 1) / 2, sum[0]);
+    }
+
+    @Test
+    public void equalityIndependentOfInsertionOrder() {
+        ImmutableMap<String, Integer> forward = new ImmutableMap<>();
+        ImmutableMap<String, Integer> backward = new ImmutableMap<>();
+        for (int i = 0; i < 100; i++) {
+            forward = forward.put("key" + i, i);
+            backward = backward.put("key" + (99 - i), 99 - i);
+        }
+        assertEquals(forward, backward);
+        assertEquals(forward.hashCode(), backward.hashCode());
+        assertNotEquals(forward, backward.put("key0", 100));
+        assertNotEquals(forward, backward.put("key100", 100));
+        assertNotEquals(forward, null);
+        assertNotEquals(forward, new Object());
+        assertEquals(new ImmutableMap<>().put("Aa", 1).put("BB", 2), new ImmutableMap<>().put("BB", 2).put("Aa", 1));
+    }
+
+    @Test
+    public void toStringEntries() {
+        assertEquals("{}", new ImmutableMap<>().toString());
+        assertEquals("{a=1}", new ImmutableMap<>().put("a", 1).toString());
+    }
+
+    @Test
+    public void nullKeyOrValue() {
+        final ImmutableMap<String, Integer> map = new ImmutableMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.put("a", null));
+        assertThrows(IllegalArgumentException.class, () -> map.get(null));
+    }
+
+}
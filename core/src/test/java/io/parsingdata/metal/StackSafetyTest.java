@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.count;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.not;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.Shorthand.tie;
+import static io.parsingdata.metal.data.Selection.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Parses inputs with a large number of iterations, to verify that the
+ * iteration in tokens and graph traversals does not grow the call stack.
+ */
+public class StackSafetyTest {
+
+    private static final int SIZE = 100000;
+
+    private static int[] input() {
+        final int[] data = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            data[i] = i % 3;
+        }
+        return data;
+    }
+
+    @Test
+    public void manyIterations() {
+        final Token format = rep(cho(def("zero", con(1), eq(con(0))), seq(def("one", con(1), eq(con(1))), def("two", con(1), eq(con(2))))));
+        final Optional<ParseState> result = format.parse(env(stream(input())));
+        assertTrue(result.isPresent());
+        assertEquals(SIZE, getAllValues(result.get().order, value -> true).size);
+        assertEquals(SIZE / 3 + 1, count(ref("zero")).evalSingle(result.get(), enc()).orElseThrow().asLong());
+    }
+
+    @Test
+    public void manySubsAndTies() {
+        final Token format = seq(rep(def("value", con(1))),
+                                 sub(def("copy", con(1)), ref("value")),
+                                 tie(rep(def("tied", con(1), not(eq(con(3))))), ref("value")));
+        final Optional<ParseState> result = format.parse(env(stream(input())));
+        assertTrue(result.isPresent());
+        assertEquals(SIZE, count(ref("copy")).evalSingle(result.get(), enc()).orElseThrow().asLong());
+        assertEquals(SIZE, count(ref("tied")).evalSingle(result.get(), enc()).orElseThrow().asLong());
+    }
+
+}
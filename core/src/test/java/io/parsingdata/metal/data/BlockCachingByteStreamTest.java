@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static java.math.BigInteger.valueOf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class BlockCachingByteStreamTest {
+
+    private static final byte[] DATA = createData(100);
+
+    private static byte[] createData(final int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static class CountingByteStream extends InMemoryByteStream {
+
+        int reads;
+        int availabilityChecks;
+
+        CountingByteStream(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public byte[] read(final BigInteger offset, final int length) throws IOException {
+            reads++;
+            return super.read(offset, length);
+        }
+
+        @Override
+        public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+            availabilityChecks++;
+            return super.isAvailable(offset, length);
+        }
+
+        @Override
+        public byte[] read(final long offset, final int length) throws IOException {
+            reads++;
+            return super.read(offset, length);
+        }
+
+        @Override
+        public boolean isAvailable(final long offset, final long length) {
+            availabilityChecks++;
+            return super.isAvailable(offset, length);
+        }
+
+    }
+
+    @Test
+    public void readWithinBlock() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 16, 4);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 2, 4), stream.read(valueOf(2), 2));
+        assertArrayEquals(Arrays.copyOfRange(DATA, 4, 8), stream.read(valueOf(4), 4));
+        assertArrayEquals(Arrays.copyOfRange(DATA, 0, 16), stream.read(ZERO, 16));
+        assertEquals(1, input.reads);
+        assertEquals(2, stream.getHits());
+        assertEquals(1, stream.getMisses());
+    }
+
+    @Test
+    public void readAcrossBlockBoundaries() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 16, 8);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 14, 50), stream.read(valueOf(14), 36));
+        assertEquals(4, input.reads);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 15, 17), stream.read(valueOf(15), 2));
+        assertEquals(4, input.reads);
+        assertEquals(2, stream.getHits());
+        assertEquals(4, stream.getMisses());
+    }
+
+    @Test
+    public void readPartialLastBlock() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 64, 2);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 64, 70), stream.read(valueOf(64), 6));
+        assertArrayEquals(Arrays.copyOfRange(DATA, 66, 68), stream.read(valueOf(66), 2));
+        assertEquals(1, input.reads);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 90, 100), stream.read(valueOf(90), 10));
+        assertEquals(1, input.reads);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 64, 100), stream.read(valueOf(64), 36));
+        assertEquals(1, input.reads);
+    }
+
+    @Test
+    public void readBuffer() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 16, 4);
+        final ByteBuffer withinBlock = stream.readBuffer(valueOf(18), 4);
+        assertTrue(withinBlock.isReadOnly());
+        assertEquals(ByteBuffer.wrap(Arrays.copyOfRange(DATA, 18, 22)), withinBlock);
+        final ByteBuffer acrossBlocks = stream.readBuffer(valueOf(30), 4);
+        assertTrue(acrossBlocks.isReadOnly());
+        assertEquals(ByteBuffer.wrap(Arrays.copyOfRange(DATA, 30, 34)), acrossBlocks);
+        assertEquals(2, input.reads);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 10, 2);
+        stream.read(valueOf(0), 1);
+        stream.read(valueOf(10), 1);
+        stream.read(valueOf(0), 1);
+        stream.read(valueOf(20), 1);
+        assertEquals(3, input.reads);
+        stream.read(valueOf(0), 1);
+        assertEquals(3, input.reads);
+        stream.read(valueOf(10), 1);
+        assertEquals(4, input.reads);
+        assertEquals(2, stream.getHits());
+        assertEquals(4, stream.getMisses());
+    }
+
+    @Test
+    public void isAvailable() {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 16, 2);
+        assertTrue(stream.isAvailable(ZERO, valueOf(50)));
+        assertEquals(1, input.availabilityChecks);
+        assertTrue(stream.isAvailable(valueOf(10), valueOf(40)));
+        assertTrue(stream.isAvailable(valueOf(49), ONE));
+        assertEquals(1, input.availabilityChecks);
+        assertTrue(stream.isAvailable(valueOf(50), valueOf(50)));
+        assertFalse(stream.isAvailable(valueOf(50), valueOf(51)));
+        assertEquals(3, input.availabilityChecks);
+    }
+
+    @Test
+    public void negativeIsNotAvailable() {
+        final BlockCachingByteStream stream = new BlockCachingByteStream(new InMemoryByteStream(DATA), 16, 2);
+        assertTrue(stream.isAvailable(ZERO, valueOf(50)));
+        assertFalse(stream.isAvailable(valueOf(-1), ONE));
+        assertFalse(stream.isAvailable(valueOf(-10), valueOf(20)));
+        assertFalse(stream.isAvailable(valueOf(10), valueOf(-1)));
+        assertFalse(stream.isAvailable(-1L, 1L));
+        assertThrows(IOException.class, () -> stream.read(-1L, 1));
+    }
+
+    @Test
+    public void overflowIsNotAvailable() {
+        final BlockCachingByteStream stream = new BlockCachingByteStream(new InMemoryByteStream(DATA), 16, 2);
+        assertTrue(stream.isAvailable(ZERO, valueOf(50)));
+        assertFalse(stream.isAvailable(Long.MAX_VALUE, 1L));
+        assertFalse(stream.isAvailable(1L, Long.MAX_VALUE));
+        assertThrows(IOException.class, () -> stream.read(Long.MAX_VALUE, 1));
+    }
+
+    @Test
+    public void readUnavailable() {
+        final BlockCachingByteStream stream = new BlockCachingByteStream(new InMemoryByteStream(DATA), 16, 2);
+        final IOException exception = assertThrows(IOException.class, () -> stream.read(valueOf(99), 2));
+        assertEquals("Data to read is not available ([offset=99;length=2;stream=BlockCachingByteStream(InMemoryByteStream(100);16)).", exception.getMessage());
+    }
+
+    @Test
+    public void backtrackingServedFromCache() {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final BlockCachingByteStream stream = new BlockCachingByteStream(input, 32, 4);
+        final Optional<ParseState> result = rep(cho(seq(def("a", con(1)), def("b", con(1), eq(con(0xff)))), def("c", con(4))))
+            .parse(env(createFromByteStream(stream), enc()));
+        assertTrue(result.isPresent());
+        assertEquals(valueOf(100), result.get().offset);
+        assertEquals(4, input.reads);
+        assertTrue(stream.getHits() > stream.getMisses());
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockCachingByteStream(null));
+        assertThrows(IllegalArgumentException.class, () -> new BlockCachingByteStream(new InMemoryByteStream(DATA), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockCachingByteStream(new InMemoryByteStream(DATA), 1, 0));
+    }
+
+}
@@ -22,11 +22,20 @@ import static java.math.BigInteger.ZERO;
 import static java.math.BigInteger.valueOf;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.selection.ByName.getValue;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
@@ -69,4 +78,18 @@ public class ByteStreamSourceTest {
         assertArrayEquals(bytes, valueBytes);
     }
 
+    @Test
+    public void parseUsesLongOverloads() {
+        final byte[] bytes = { 1, 2, 3, 4 };
+        final ByteStream longOnly = new ByteStream() {
+            @Override public byte[] read(BigInteger offset, int length) throws IOException { throw new IOException("BigInteger variant used."); }
+            @Override public boolean isAvailable(BigInteger offset, BigInteger length) { throw new IllegalStateException("BigInteger variant used."); }
+            @Override public byte[] read(long offset, int length) { return Arrays.copyOfRange(bytes, (int)offset, (int)offset + length); }
+            @Override public boolean isAvailable(long offset, long length) { return offset + length <= bytes.length; }
+        };
+        final ParseState result = seq(def("a", con(1)), def("b", con(2)), def("c", con(1))).parse(env(createFromByteStream(longOnly))).get();
+        assertEquals(4, result.offset.intValueExact());
+        assertArrayEquals(new byte[] { 2, 3 }, getValue(result.order, "b").value());
+    }
+
 }
@@ -129,4 +129,32 @@ public class ConcatenatedValueSourceTest {
         assertArrayEquals(bytes, bytesRead);
     }
 
+    @Test
+    @Timeout(value=1)
+    public void manyFragmentsRead() {
+        // Split a sequence of bytes in many small fragments of varying size, including empty ones.
+        final int fragmentCount = 100_000;
+        ImmutableList<Value> values = new ImmutableList<>();
+        int size = 0;
+        for (int fragment = 0; fragment < fragmentCount; fragment++) {
+            final byte[] bytes = new byte[fragment % 4];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (size + i);
+            }
+            size += bytes.length;
+            values = values.add(createFromBytes(bytes, enc()));
+        }
+        final ConcatenatedValueSource source = ConcatenatedValueSource.create(values).get();
+        assertEquals(valueOf(size), source.length);
+
+        // Read each byte separately and in reads that span several fragments.
+        for (int offset = 0; offset < size; offset++) {
+            assertEquals((byte) offset, source.getData(valueOf(offset), BigInteger.ONE)[0]);
+        }
+        final byte[] data = source.getData(valueOf(5), valueOf(7));
+        for (int i = 0; i < data.length; i++) {
+            assertEquals((byte) (5 + i), data[i]);
+        }
+    }
+
 }
@@ -17,10 +17,16 @@
 
 package io.parsingdata.metal.data;
 
+import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.valueOf;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.math.BigInteger;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
@@ -51,4 +57,27 @@ class ConstantSourceTest {
         assertArrayEquals(bytes, valueBytes);
     }
 
+    @Test
+    public void primitiveOffsets() {
+        final ConstantSource source = new ConstantSource(new byte[] { 0, 1, 2, 3 });
+        assertArrayEquals(new byte[] { 1, 2 }, source.getData(1L, 2));
+        assertArrayEquals(new byte[0], source.getData(4L, 0));
+        assertTrue(source.isAvailable(0L, 4L));
+        assertFalse(source.isAvailable(1L, 4L));
+        final Exception e = assertThrows(IllegalStateException.class, () -> source.getData(3L, 2));
+        assertEquals("Data to read is not available ([offset=3;length=2;source=ConstantSource(0x00010203)).", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> source.isAvailable(-1L, 1L));
+    }
+
+    @Test
+    public void offsetsBeyondPrimitiveRange() {
+        final ConstantSource source = new ConstantSource(new byte[] { 0, 1, 2, 3 });
+        final BigInteger large = valueOf(Long.MAX_VALUE).add(ONE);
+        assertFalse(Slice.createFromSource(source, large, ONE).isPresent());
+        assertFalse(Slice.createFromSource(source, ONE, large).isPresent());
+        final Slice slice = Slice.createFromSource(source, ONE, valueOf(3)).get();
+        assertArrayEquals(new byte[] { 1, 2, 3 }, slice.getData(large));
+        assertThrows(IllegalStateException.class, () -> slice.getData(large, ONE));
+    }
+
 }
\ No newline at end of file
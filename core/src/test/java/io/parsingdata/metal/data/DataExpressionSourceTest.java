@@ -35,6 +35,7 @@ import static io.parsingdata.metal.Shorthand.tie;
 import static io.parsingdata.metal.data.Slice.createFromSource;
 import static io.parsingdata.metal.data.selection.ByName.getValue;
 import static io.parsingdata.metal.expression.value.BytesTest.EMPTY_PARSE_STATE;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
@@ -50,6 +51,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
 import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.ConstantFactory;
 import io.parsingdata.metal.expression.value.CoreValue;
 import io.parsingdata.metal.expression.value.Value;
 import io.parsingdata.metal.token.Token;
@@ -92,6 +94,15 @@ public class DataExpressionSourceTest {
         assertEquals("ValueExpression dataExpression yields NOT_A_VALUE at index 0.", e.getMessage());
     }
 
+    @Test
+    public void createFromValue() {
+        final DataExpressionSource source = DataExpressionSource.createFromValue(div(con(1), con(0)), 0, EMPTY_PARSE_STATE, enc(), ConstantFactory.createFromBytes(new byte[] { 1, 2 }, enc()));
+        assertArrayEquals(new byte[] { 1, 2 }, source.getData(ZERO, valueOf(2)));
+        assertFalse(source.isAvailable(ZERO, valueOf(3)));
+        final Exception e = Assertions.assertThrows(IllegalArgumentException.class, () -> DataExpressionSource.createFromValue(ref("a"), 0, EMPTY_PARSE_STATE, enc(), NOT_A_VALUE));
+        assertEquals("Argument value may not be NOT_A_VALUE (index 0).", e.getMessage());
+    }
+
     @Test
     @Timeout(value=1)
     public void dataExpressionSourceRead() {
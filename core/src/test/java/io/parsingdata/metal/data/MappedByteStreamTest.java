@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static java.math.BigInteger.valueOf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.Selection.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class MappedByteStreamTest {
+
+    private static final byte[] DATA = createData(1000);
+
+    private static byte[] createData(final int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static Path createFile(final byte[] data) throws IOException {
+        final Path path = Files.createTempFile("metal", ".bin");
+        path.toFile().deleteOnExit();
+        return Files.write(path, data);
+    }
+
+    @Test
+    public void readWithinAndAcrossWindows() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 2)) {
+            assertArrayEquals(Arrays.copyOfRange(DATA, 10, 20), stream.read(valueOf(10), 10));
+            assertArrayEquals(Arrays.copyOfRange(DATA, 60, 70), stream.read(valueOf(60), 10));
+            assertArrayEquals(Arrays.copyOfRange(DATA, 1, 999), stream.read(ONE, 998));
+            assertArrayEquals(Arrays.copyOfRange(DATA, 990, 1000), stream.read(valueOf(990), 10));
+            assertArrayEquals(Arrays.copyOfRange(DATA, 0, 64), stream.read(ZERO, 64));
+        }
+    }
+
+    @Test
+    public void readAll() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA))) {
+            assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+            assertArrayEquals(new byte[0], stream.read(valueOf(DATA.length), 0));
+        }
+    }
+
+    @Test
+    public void readBuffer() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 2)) {
+            final ByteBuffer withinWindow = stream.readBuffer(valueOf(70), 10);
+            assertTrue(withinWindow.isReadOnly());
+            assertEquals(ByteBuffer.wrap(Arrays.copyOfRange(DATA, 70, 80)), withinWindow);
+            final ByteBuffer acrossWindows = stream.readBuffer(valueOf(60), 10);
+            assertTrue(acrossWindows.isReadOnly());
+            assertEquals(ByteBuffer.wrap(Arrays.copyOfRange(DATA, 60, 70)), acrossWindows);
+        }
+    }
+
+    @Test
+    public void isAvailable() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 1)) {
+            assertTrue(stream.isAvailable(ZERO, valueOf(DATA.length)));
+            assertTrue(stream.isAvailable(valueOf(DATA.length), ZERO));
+            assertFalse(stream.isAvailable(ONE, valueOf(DATA.length)));
+            assertFalse(stream.isAvailable(valueOf(Long.MAX_VALUE).add(ONE), ONE));
+        }
+    }
+
+    @Test
+    public void negativeIsNotAvailable() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 1)) {
+            assertFalse(stream.isAvailable(valueOf(-5), valueOf(2)));
+            assertFalse(stream.isAvailable(ONE, valueOf(-1)));
+            assertFalse(stream.isAvailable(-5, 2));
+            assertFalse(stream.isAvailable(1, -1));
+            assertThrows(IOException.class, () -> stream.read(-5, 2));
+            assertThrows(IOException.class, () -> stream.readBuffer(valueOf(-5), 2));
+        }
+    }
+
+    @Test
+    public void overflowIsNotAvailable() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 1)) {
+            assertFalse(stream.isAvailable(Long.MAX_VALUE, 1));
+            assertFalse(stream.isAvailable(1, Long.MAX_VALUE));
+            assertFalse(stream.isAvailable(valueOf(Long.MAX_VALUE), ONE));
+            assertThrows(IOException.class, () -> stream.read(Long.MAX_VALUE, 1));
+        }
+    }
+
+    @Test
+    public void readUnavailable() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 1)) {
+            final IOException exception = assertThrows(IOException.class, () -> stream.read(valueOf(999), 2));
+            assertEquals("Data to read is not available ([offset=999;length=2;stream=MappedByteStream(1000)).", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void readAfterClose() throws IOException {
+        final MappedByteStream stream = new MappedByteStream(createFile(DATA), 64, 1);
+        assertArrayEquals(Arrays.copyOfRange(DATA, 0, 2), stream.read(ZERO, 2));
+        stream.close();
+        final IOException exception = assertThrows(IOException.class, () -> stream.read(ZERO, 2));
+        assertEquals("Stream is closed.", exception.getMessage());
+    }
+
+    @Test
+    public void parseFromMappedFile() throws IOException {
+        try (final MappedByteStream stream = new MappedByteStream(createFile(DATA), 128, 2)) {
+            final Optional<ParseState> result = rep(def("value", con(10))).parse(env(createFromByteStream(stream), enc()));
+            assertTrue(result.isPresent());
+            final ImmutableList<ParseValue> values = getAllValues(result.get().order, value -> value.matches("value"));
+            assertEquals(100, values.size);
+            assertEquals(ZERO, values.head.slice().offset);
+            assertArrayEquals(Arrays.copyOfRange(DATA, 0, 10), values.head.value());
+            assertEquals(BigInteger.valueOf(1000), result.get().offset);
+        }
+    }
+
+    @Test
+    public void invalidArguments() throws IOException {
+        final Path path = createFile(DATA);
+        assertThrows(IllegalArgumentException.class, () -> new MappedByteStream(null));
+        assertThrows(IllegalArgumentException.class, () -> new MappedByteStream(path, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MappedByteStream(path, 1, 0));
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.count;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class MemoTableTest {
+
+    private static final Token HEADER = seq(def("marker", con(1), eq(con(0xff))), rep(def("data", con(1), eq(con(0)))));
+    private static final Token FAILING = def("failing", con(1), eq(con(0x42)));
+    private static final Token CHOICE = cho(seq(HEADER, FAILING, def("one", con(1), eq(con(1)))),
+                                            seq(HEADER, FAILING, def("two", con(1), eq(con(2)))),
+                                            seq(HEADER, def("three", con(1), eq(con(3)))));
+    private static final ByteStream INPUT = new InMemoryByteStream(new byte[] { -1, 0, 0, 0, 3 });
+
+    @Test
+    public void replaysSuccessAndFailure() {
+        final MemoTable memoTable = MemoTable.create();
+        final Optional<ParseState> memoized = CHOICE.parse(env(createFromByteStream(INPUT), memoTable, enc()));
+        final Optional<ParseState> parsed = CHOICE.parse(env(createFromByteStream(INPUT)));
+        assertTrue(memoized.isPresent());
+        assertEquals(parsed.get().order, memoized.get().order);
+        assertEquals(parsed.get().offset, memoized.get().offset);
+        assertEquals(2, memoTable.getHits(HEADER));
+        assertEquals(1, memoTable.getMisses(HEADER));
+        assertEquals(1, memoTable.getHits(FAILING));
+        assertEquals(1, memoTable.getMisses(FAILING));
+    }
+
+    @Test
+    public void replayedValuesAreReferenceable() {
+        final Optional<ParseState> result = CHOICE.parse(env(createFromByteStream(INPUT), MemoTable.create(), enc()));
+        assertEquals(3, count(ref("data")).evalSingle(result.get(), enc()).orElseThrow().asLong());
+        assertEquals(0xff, last(ref("marker")).evalSingle(result.get(), enc()).orElseThrow().asLong());
+    }
+
+    @Test
+    public void onlySelectedTokens() {
+        final MemoTable memoTable = MemoTable.create(FAILING);
+        CHOICE.parse(env(createFromByteStream(INPUT), memoTable, enc()));
+        assertEquals(0, memoTable.getMisses(HEADER));
+        assertEquals(1, memoTable.getHits(FAILING));
+        assertEquals(ImmutableList.create(FAILING), memoTable.getTokens());
+    }
+
+    @Test
+    public void referencesAreNotMemoized() {
+        final Token dependent = def("dependent", last(ref("marker")));
+        final MemoTable memoTable = MemoTable.create();
+        cho(seq(HEADER, dependent, FAILING), seq(HEADER, dependent)).parse(env(createFromByteStream(INPUT), memoTable, enc()));
+        assertEquals(0, memoTable.getMisses(dependent));
+        assertEquals(0, memoTable.getHits(dependent));
+        assertEquals(1, memoTable.getHits(HEADER));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final MemoTable memoTable = new MemoTable(token -> token == HEADER || token == FAILING, 1);
+        final Optional<ParseState> result = cho(seq(HEADER, FAILING), seq(HEADER, def("three", con(1)))).parse(env(createFromByteStream(INPUT), memoTable, enc()));
+        assertTrue(result.isPresent());
+        assertEquals(0, memoTable.getHits(HEADER));
+        assertEquals(2, memoTable.getMisses(HEADER));
+    }
+
+    @Test
+    public void bypassedWithCallbacks() {
+        final MemoTable memoTable = MemoTable.create();
+        final Callbacks callbacks = Callbacks.create().add(new Callback() {
+            @Override public void handleSuccess(final Token token, final ParseState before, final ParseState after) {}
+            @Override public void handleFailure(final Token token, final ParseState before) {}
+        });
+        CHOICE.parse(new Environment(Token.NO_NAME, createFromByteStream(INPUT), callbacks, memoTable, enc()));
+        assertEquals(0, memoTable.getMisses(HEADER));
+    }
+
+}
@@ -17,12 +17,25 @@
 
 package io.parsingdata.metal.data;
 
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.opt;
 import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 import static io.parsingdata.metal.util.TokenDefinitions.any;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -38,4 +51,56 @@ public class ParseStateTest {
         assertEquals("Cannot close branch for iterable token closeName. Current iteration state is for token openName.", e.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void containsReference() {
+        final ParseState parseState = stream(1, 2, 3);
+        final ParseReference first = new ParseReference(ZERO, parseState.source, any("a"));
+        final ParseReference second = new ParseReference(ONE, parseState.source, any("a"));
+        final ParseState withReference = parseState.add(first).addBranch(any("b")).seek(ONE).get();
+        assertTrue(withReference.containsReference(first));
+        assertTrue(withReference.containsReference(new ParseReference(ZERO, parseState.source, any("a"))));
+        assertFalse(withReference.containsReference(second));
+        assertFalse(parseState.containsReference(first));
+
+        // A ParseState constructed from a list of references finds them as well.
+        final ParseState constructed = new ParseState(withReference.order, withReference.cache, withReference.source, withReference.offset, withReference.iterations, withReference.references);
+        assertTrue(constructed.containsReference(first));
+        assertTrue(constructed.add(second).containsReference(second));
+        assertFalse(constructed.containsReference(second));
+
+        // The references are passed on when returning from a Tie and when a parse is replayed.
+        assertTrue(stream(4).returnTo(withReference).containsReference(first));
+        assertTrue(withReference.replay(parseState, parseState.add(second)).containsReference(second));
+    }
+
+    @Test
+    public void findDefinition() {
+        final Token first = any("a");
+        final Token second = def("a", con(2));
+        final Token inner = seq("inner", second, opt(token("unknown")));
+        final Token outer = seq("outer", first, inner, any("b"));
+        // The lookup of "unknown" builds the index, which is then maintained while parsing continues.
+        final ParseState result = outer.parse(env(stream(1, 2, 3, 4))).get();
+        assertEquals(Optional.of(outer), result.findDefinition("outer"));
+        assertEquals(Optional.of(second), result.findDefinition("a"));
+        assertEquals(Optional.of(inner), result.findDefinition("inner"));
+        assertEquals(Optional.empty(), result.findDefinition("unknown"));
+
+        // A ParseState constructed from a graph builds the same index.
+        final ParseState constructed = new ParseState(result.order, result.cache, result.source, result.offset, result.iterations, result.references);
+        for (final String name : new String[] { "outer", "inner", "a", "b", "unknown" }) {
+            assertEquals(result.findDefinition(name), constructed.findDefinition(name));
+        }
+
+        // The index is passed on when returning from a Tie and extended with the items of a replayed parse.
+        final ParseState base = stream(1, 2, 3, 4);
+        assertEquals(Optional.empty(), base.findDefinition("a"));
+        final ParseState replayed = base.replay(base, outer.parse(env(base)).get());
+        final ParseState returned = result.returnTo(stream(5));
+        for (final String name : new String[] { "outer", "inner", "a", "b", "unknown" }) {
+            assertEquals(result.findDefinition(name), replayed.findDefinition(name));
+            assertEquals(result.findDefinition(name), returned.findDefinition(name));
+        }
+    }
+
+}
@@ -12,9 +12,13 @@ import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.first;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.nth;
 import static io.parsingdata.metal.Shorthand.ref;
 import static io.parsingdata.metal.Shorthand.scope;
 import static io.parsingdata.metal.data.ParseGraph.NONE;
+import static io.parsingdata.metal.AutoEqualityTest.DUMMY_STREAM;
 import static io.parsingdata.metal.data.ParseValueCache.NO_CACHE;
 import static io.parsingdata.metal.data.Selection.NO_LIMIT;
 import static io.parsingdata.metal.data.Slice.createFromBytes;
@@ -48,6 +52,11 @@ class ParseValueCacheTest {
 
     @BeforeAll
     public static void setup() {
+        // Build a parseGraph with a scopeDepth of 2.
+        final Token t = any("t");
+        final Token s = seq("scopeDelimiter", t, t);
+        parseGraph = ParseGraph.EMPTY.addBranch(s).addBranch(s);
+
         pv1 = parseValue("only.first.name");
         final ParseValue pvother = parseValue("something.else");
         pv2Definition = def("name", 2);
@@ -56,12 +65,7 @@ class ParseValueCacheTest {
         pv3Definition = def("name", 3);
         pv3 = parseValue("second.second.name", pv3Definition);
         final ParseValue pvother3 = parseValue("other.subname");
-        parseValueCache = new ParseValueCache().add(pv1).add(pvother).add(pv2).add(pvother2).add(pv3).add(pvother3);
-
-        // Build a parseGraph with a scopeDepth of 2.
-        final Token t = any("t");
-        final Token s = seq("scopeDelimiter", t, t);
-        parseGraph = ParseGraph.EMPTY.addBranch(s).addBranch(s);
+        parseValueCache = new ParseValueCache().addBranch(s).addBranch(s).add(pv1).add(pvother).add(pv2).add(pvother2).add(pv3).add(pvother3);
     }
 
     public static Stream<Arguments> findTest() {
@@ -151,32 +155,32 @@ class ParseValueCacheTest {
             arguments("nameRef", ref("second.name"), true),
             arguments("nameRef with limit", ref(con(1), "second.name"), true),
 
-            arguments("multi nameRef", ref("second.name", "first.name"), false),
-            arguments("multi nameRef with limit", ref(con(1), "second.name", "first.name"), false),
-            arguments("definitionRef", ref(pv2Definition), false),
-            arguments("definitionRef with limit", ref(con(1), pv2Definition), false),
-            arguments("multi definitionRef", ref(pv2Definition, pv3Definition), false),
-            arguments("multi definitionRef with limit", ref(con(1), pv2Definition, pv3Definition), false),
+            arguments("multi nameRef", ref("second.name", "first.name"), true),
+            arguments("multi nameRef with limit", ref(con(1), "second.name", "first.name"), true),
+            arguments("definitionRef", ref(pv2Definition), true),
+            arguments("definitionRef with limit", ref(con(1), pv2Definition), true),
+            arguments("multi definitionRef", ref(pv2Definition, pv3Definition), true),
+            arguments("multi definitionRef with limit", ref(con(1), pv2Definition, pv3Definition), true),
 
             // Requested scope is smaller than the scopeDepth of the ParseGraph.
-            arguments("scoped nameRef", scope(ref("second.name"), con(1)), false),
-            arguments("scoped nameRef with limit", scope(ref(con(1), "second.name"), con(1)), false),
-            arguments("scoped multi nameRef", scope(ref("second.name", "first.name"), con(1)), false),
-            arguments("scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(1)), false),
-            arguments("scoped definitionRef", scope(ref(pv2Definition), con(1)), false),
-            arguments("scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(1)), false),
-            arguments("scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(1)), false),
-            arguments("scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(1)), false),
+            arguments("scoped nameRef", scope(ref("second.name"), con(1)), true),
+            arguments("scoped nameRef with limit", scope(ref(con(1), "second.name"), con(1)), true),
+            arguments("scoped multi nameRef", scope(ref("second.name", "first.name"), con(1)), true),
+            arguments("scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(1)), true),
+            arguments("scoped definitionRef", scope(ref(pv2Definition), con(1)), true),
+            arguments("scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(1)), true),
+            arguments("scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(1)), true),
+            arguments("scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(1)), true),
 
             // Requested scope matches or exceeds the scopeDepth of the ParseGraph.
             arguments("matching scoped nameRef", scope(ref("second.name"), con(2)), true),
             arguments("matching scoped nameRef with limit", scope(ref(con(1), "second.name"), con(2)), true),
-            arguments("matching scoped multi nameRef", scope(ref("second.name", "first.name"), con(2)), false),
-            arguments("matching scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(2)), false),
-            arguments("matching scoped definitionRef", scope(ref(pv2Definition), con(2)), false),
-            arguments("matching scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(2)), false),
-            arguments("matching scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(2)), false),
-            arguments("matching scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(2)), false)
+            arguments("matching scoped multi nameRef", scope(ref("second.name", "first.name"), con(2)), true),
+            arguments("matching scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(2)), true),
+            arguments("matching scoped definitionRef", scope(ref(pv2Definition), con(2)), true),
+            arguments("matching scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(2)), true),
+            arguments("matching scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(2)), true),
+            arguments("matching scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(2)), true)
         );
     }
 
@@ -189,4 +193,154 @@ class ParseValueCacheTest {
         // That means, if result is not empty, the cache was used.
         assertEquals(shouldUseCache, !eval.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void multiNameTest() {
+        final ParseValue x1 = parseValue("a.x");
+        final ParseValue y1 = parseValue("a.y");
+        final ParseValue x2 = parseValue("b.x");
+        final ParseValue z = parseValue("a.z");
+        final ParseValueCache cache = new ParseValueCache().add(x1).add(y1).add(z).add(x2);
+        assertValues(cache.findByName(ImmutableList.create("y").add("x"), NO_LIMIT, 0, 0), x2, y1, x1);
+        assertValues(cache.findByName(ImmutableList.create("y").add("x"), 2, 0, 0), x2, y1);
+        assertValues(cache.findByName(ImmutableList.create("a.x").add("x"), NO_LIMIT, 0, 0), x2, x1);
+        assertValues(cache.findByName(ImmutableList.create("a.x").add("a.z"), NO_LIMIT, 0, 0), z, x1);
+    }
+
+    @Test
+    public void definitionTest() {
+        final Token a = def("a", 1);
+        final Token b = def("b", 1);
+        final ParseValue a1 = parseValue("x", a);
+        final ParseValue b1 = parseValue("y", b);
+        final ParseValue a2 = parseValue("z", a);
+        final ParseValueCache cache = new ParseValueCache().add(a1).add(b1).add(a2);
+        assertValues(cache.findByDefinition(ImmutableList.create(a), NO_LIMIT, 0, 0), a2, a1);
+        assertValues(cache.findByDefinition(ImmutableList.create(a).add(b), NO_LIMIT, 0, 0), a2, b1, a1);
+        assertValues(cache.findByDefinition(ImmutableList.create(a).add(def("a", 1)), 1, 0, 0), a2);
+        assertValues(cache.findByDefinition(ImmutableList.create(def("c", 1)), NO_LIMIT, 0, 0));
+        assertFalse(NO_CACHE.findByDefinition(ImmutableList.create(a), NO_LIMIT, 0, 0).isPresent());
+    }
+
+    @Test
+    public void removeTest() {
+        final Token a = def("a", 1);
+        final ParseValue a1 = parseValue("x", a);
+        final ParseValue a2 = parseValue("x", a);
+        final ParseValueCache cache = new ParseValueCache().add(a1).add(a2);
+        assertValues(cache.remove(a2).find("x", NO_LIMIT), a1);
+        assertValues(cache.remove(a2).findByDefinition(ImmutableList.create(a), NO_LIMIT, 0, 0), a1);
+        assertValues(cache.remove(a2).remove(a1).find("x", NO_LIMIT));
+        // Only the most recently added value is removed.
+        assertValues(cache.remove(a1).find("x", NO_LIMIT), a2, a1);
+        assertEquals(NO_CACHE, NO_CACHE.remove(a1));
+    }
+
+    @Test
+    public void scopeTest() {
+        final Token s = seq("scopeDelimiter", any("t"), any("t"));
+        final ParseValue a = parseValue("a.name");
+        final ParseValue b = parseValue("b.name");
+        final ParseValue c = parseValue("c.name");
+        final ParseValueCache cache = new ParseValueCache().add(a).addBranch(s).addBranch(any("t")).add(b).addBranch(s).add(c);
+        assertValues(cache.findByName(ImmutableList.create("name"), NO_LIMIT, 0, 2), c);
+        assertValues(cache.findByName(ImmutableList.create("name"), NO_LIMIT, 1, 2), c, b);
+        assertValues(cache.findByName(ImmutableList.create("name"), NO_LIMIT, 2, 2), c, b, a);
+        assertValues(cache.closeBranch(s).findByName(ImmutableList.create("name"), NO_LIMIT, 0, 1), c, b);
+        // The scopes of the cache do not correspond to the provided scope depth.
+        assertFalse(cache.findByName(ImmutableList.create("name"), NO_LIMIT, 0, 3).isPresent());
+        assertFalse(cache.closeBranch(s).closeBranch(s).closeBranch(s).findByName(ImmutableList.create("name"), NO_LIMIT, 0, 1).isPresent());
+    }
+
+    public static Stream<ValueExpression> matchesGraphTest() {
+        final ValueExpression[] expressions = {
+            ref("name"),
+            ref("second.name", "first.name"),
+            ref(con(1), "name", "other"),
+            ref(pv2Definition, pv3Definition),
+            ref(con(2), NONE),
+            scope(ref("name"), con(0)),
+            scope(ref("name", "subname"), con(1)),
+            scope(ref(NONE), con(1)),
+            scope(ref(con(1), pv2Definition, NONE), con(0)),
+            scope(ref("name"), con(2)),
+            last(ref("name")),
+            last(ref(pv2Definition, pv3Definition)),
+            last(scope(ref("subname"), con(1))),
+            first(ref("name")),
+            first(ref(con(2), "name")),
+            first(scope(ref("name"), con(0))),
+            nth(ref("name"), con(1)),
+            nth(ref(con(3), "name", "subname"), con(1)),
+            nth(ref("name"), con(100)),
+            nth(ref(NONE), ref("name"))
+        };
+        return Stream.of(expressions);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void matchesGraphTest(final ValueExpression expression) {
+        final Token s = seq("scopeDelimiter", any("t"), any("t"));
+        final ParseState parseState = ParseState.createFromByteStream(DUMMY_STREAM)
+            .add(parseValue("only.first.name"))
+            .addBranch(s)
+            .add(parseValue("other.subname"))
+            .add(parseValue("first.second.name", pv2Definition))
+            .addBranch(any("t"))
+            .add(parseValue("name.not.last"))
+            .addBranch(s)
+            .add(parseValue("second.second.name", pv3Definition))
+            .add(parseValue("second.other"))
+            .closeBranch(s)
+            .add(parseValue("last.subname"))
+            .addBranch(s)
+            .add(parseValue("third.name"));
+        final ImmutableList<Value> fromCache = expression.eval(parseState, enc());
+        final ImmutableList<Value> fromGraph = expression.eval(parseState.withOrder(parseState.order), enc());
+        assertFalse(fromCache.isEmpty());
+        assertEquals(fromGraph, fromCache);
+    }
+
+    @Test
+    public void findNthTest() {
+        final ParseValue x1 = parseValue("a.x");
+        final ParseValue y1 = parseValue("a.y");
+        final ParseValue x2 = parseValue("b.x");
+        final ParseValueCache cache = new ParseValueCache().add(x1).add(y1).add(x2);
+        final ImmutableList<String> names = ImmutableList.create("y").add("x");
+        assertValues(cache.findNthByName(names, 0, NO_LIMIT, 0, 0), x2);
+        assertValues(cache.findNthByName(names, 2, NO_LIMIT, 0, 0), x1);
+        assertValues(cache.findNthByName(names, 3, NO_LIMIT, 0, 0));
+        assertValues(cache.findNthByName(names, -1, NO_LIMIT, 0, 0), x1);
+        assertValues(cache.findNthByName(names, -3, NO_LIMIT, 0, 0), x2);
+        assertValues(cache.findNthByName(names, -4, NO_LIMIT, 0, 0));
+        assertValues(cache.findNthByName(ImmutableList.create("b.x"), -1, NO_LIMIT, 0, 0), x2);
+        assertValues(cache.findNthByName(ImmutableList.create("x"), 0, NO_LIMIT, 0, 0), x2);
+        assertValues(cache.findNthByName(ImmutableList.create("x"), 1, NO_LIMIT, 0, 0), x1);
+        assertValues(cache.findNthByName(ImmutableList.create("x"), 2, NO_LIMIT, 0, 0));
+        assertValues(cache.findNthByName(ImmutableList.create("b.x"), 0, NO_LIMIT, 0, 0), x2);
+        assertValues(cache.findNthByName(ImmutableList.create("a.x"), 0, NO_LIMIT, 0, 0), x1);
+        assertValues(cache.findNthByName(ImmutableList.create("z"), 0, NO_LIMIT, 0, 0));
+        assertValues(cache.findNthByName(ImmutableList.create("x"), 1, 1, 0, 0));
+        assertFalse(cache.findNthByName(ImmutableList.create("x"), 0, NO_LIMIT, 0, 1).isPresent());
+        // Only the two most recently added values are considered.
+        assertValues(cache.findNthByName(names, -1, 2, 0, 0), y1);
+        assertValues(cache.findNthByName(names, 2, 2, 0, 0));
+        assertValues(cache.findNthByName(names, 0, 0, 0, 0));
+        assertValues(cache.findNthByDefinition(ImmutableList.create(NONE), -2, NO_LIMIT, 0, 0), y1);
+        assertFalse(cache.findNthByName(names, 0, NO_LIMIT, 0, 1).isPresent());
+        assertFalse(NO_CACHE.findNthByName(names, 0, NO_LIMIT, 0, 0).isPresent());
+    }
+
+    private static void assertValues(final Optional<ImmutableList<Value>> actual, final ParseValue... expected) {
+        assertTrue(actual.isPresent());
+        assertEquals(expected.length, actual.get().size);
+        ImmutableList<Value> tail = actual.get();
+        for (final ParseValue value : expected) {
+            assertEquals(value, tail.head);
+            tail = tail.tail;
+        }
+    }
+
+}
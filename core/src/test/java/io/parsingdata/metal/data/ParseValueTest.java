@@ -67,6 +67,19 @@ public class ParseValueTest {
         assertFalse(value.matches(".value"));
     }
 
+    @Test
+    public void matchingScopedName() {
+        final ParseValue scoped = new ParseValue("outer.inner.value", definition, createFromBytes(new byte[] { 1 }), enc());
+        assertTrue(scoped.matches("value"));
+        assertTrue(scoped.matches("inner.value"));
+        assertTrue(scoped.matches("outer.inner.value"));
+
+        assertFalse(scoped.matches("nner.value"));
+        assertFalse(scoped.matches("lue"));
+        assertFalse(scoped.matches("x.outer.inner.value"));
+        assertFalse(scoped.matches("inner"));
+    }
+
     @Test
     public void valueToStringTest() {
         assertThat(value.toString(), is("pval(value:0x01)"));
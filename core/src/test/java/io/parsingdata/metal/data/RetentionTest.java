@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.count;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.eqNum;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.post;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.tie;
+import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.expression.comparison.Eq;
+import io.parsingdata.metal.expression.value.arithmetic.Add;
+import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class RetentionTest {
+
+    private static final Token RECORDS = rep("records", seq(def("size", con(1)), def("data", last(ref("size")))));
+
+    @Test
+    public void unknownTokenRetainsAll() {
+        final Token custom = new Token("custom", enc()) {
+            @Override
+            protected Optional<ParseState> parseImpl(final Environment environment) {
+                return Optional.of(environment.parseState);
+            }
+        };
+        assertTrue(Retention.of(seq(def("a", con(1)), custom)).retainsAll());
+        assertFalse(Retention.of(RECORDS).retainsAll());
+    }
+
+    @Test
+    public void unknownExpressionRetainsAll() {
+        assertTrue(Retention.of(seq(def("a", con(1)), post(def("b", con(1)), new Eq(con(1), con(1)) {}))).retainsAll());
+        assertTrue(Retention.of(seq(def("a", con(1)), def("b", last(new Add(con(1), con(0)) {})))).retainsAll());
+        assertFalse(Retention.of(seq(def("a", con(1)), post(def("b", con(1)), new Eq(con(1), con(1))))).retainsAll());
+        assertFalse(Retention.of(seq(def("a", con(1)), def("b", last(new Add(con(1), con(0)))))).retainsAll());
+    }
+
+    @Test
+    public void keepReferencedValues() {
+        final Token format = seq(RECORDS, def("count", con(1), eqNum(count(ref("size")))));
+        final ParseState input = stream(1, 10, 2, 20, 21, 2);
+        final ParseState all = format.parse(env(input)).get();
+        final ParseState retained = format.parse(env(input.withRetention(Retention.of(format)))).get();
+        assertEquals(all.offset, retained.offset);
+        assertEquals(getAllValues(all.order, "size"), getAllValues(retained.order, "size"));
+        assertEquals(all.order.current(), retained.order.current());
+        assertEquals(2, getAllValues(all.order, "data").size);
+        assertEquals(0, getAllValues(retained.order, "data").size);
+    }
+
+    @Test
+    public void boundedGraph() {
+        final Token format = rep(def("value", con(1), eq(con(0))));
+        final ParseState input = ParseState.createFromByteStream(new InMemoryByteStream(new byte[100000])).withRetention(Retention.of(format));
+        final ParseState result = format.parse(env(input)).get();
+        assertEquals(100000, result.offset.intValueExact());
+        assertEquals(1, getAllValues(result.order, "value").size);
+        assertTrue(result.order.size <= 2);
+    }
+
+    @Test
+    public void callbacksReceiveAllValues() {
+        final int[] count = new int[1];
+        final Callbacks callbacks = Callbacks.create().add(def("data", last(ref("size"))), new Callback() {
+            @Override
+            public void handleSuccess(final Token token, final ParseState before, final ParseState after) {
+                assertEquals("records.data", after.order.current().get().name);
+                count[0]++;
+            }
+
+            @Override
+            public void handleFailure(final Token token, final ParseState before) {}
+        });
+        RECORDS.parse(env(stream(1, 10, 2, 20, 21).withRetention(Retention.of(RECORDS)), callbacks, enc()));
+        assertEquals(2, count[0]);
+    }
+
+    @Test
+    public void keepCurrentValue() {
+        final Token format = post(seq(def("a", con(1)), rep(def("b", con(1), eq(con(1))))), eq(con(5)));
+        final ParseState input = stream(5, 2).withRetention(Retention.of(format));
+        assertTrue(format.parse(env(input)).isPresent());
+    }
+
+    @Test
+    public void keepTokenReferences() {
+        final Token format = seq(def("x", con(1)), def("y", con(1)), token("x"));
+        final ParseState result = format.parse(env(stream(1, 2, 3).withRetention(Retention.of(format)))).get();
+        assertEquals(3, result.offset.intValueExact());
+        assertEquals(2, getAllValues(result.order, "x").size);
+        assertEquals(0, getAllValues(result.order, "y").size);
+    }
+
+    @Test
+    public void dropIterationNames() {
+        final ParseState input = stream(1, 10, 2, 20, 21, 1, 30);
+        final ParseState all = RECORDS.parse(env(input)).get();
+        final ParseState retained = RECORDS.parse(env(input.withRetention(Retention.of(RECORDS)))).get();
+        assertEquals(all.offset, retained.offset);
+        assertEquals(3, getAllValues(all.order, "size").size);
+        assertEquals(0, getAllValues(retained.order, "size").size);
+        assertEquals(all.order.current(), retained.order.current());
+    }
+
+    @Test
+    public void keepNamesReferencedBeforeDefinition() {
+        final Token format = seq(def("size", con(1)), rep(seq(def("data", last(ref("size"))), def("size", con(1)))));
+        final ParseState input = stream(1, 10, 2, 20, 21, 0);
+        final ParseState all = format.parse(env(input)).get();
+        final ParseState retained = format.parse(env(input.withRetention(Retention.of(format)))).get();
+        assertEquals(all.offset, retained.offset);
+        assertEquals(getAllValues(all.order, "size"), getAllValues(retained.order, "size"));
+    }
+
+    @Test
+    public void retentionIsPropagated() {
+        final Retention retention = Retention.of(RECORDS);
+        final ParseState parseState = stream(1, 2).withRetention(retention);
+        assertSame(retention, parseState.seek(ZERO).get().addBranch(RECORDS).getRetention());
+        assertSame(Retention.ALL, stream(1, 2).getRetention());
+        assertNotEquals(stream(1, 2), parseState);
+        assertEquals(parseState, parseState.seek(ZERO).get());
+    }
+
+    @Test
+    public void retentionIsPropagatedThroughTie() {
+        final Token format = seq(def("size", con(1)), tie(def("inner", con(1)), last(ref("size"))), def("data", last(ref("size"))));
+        final Retention retention = Retention.of(format);
+        assertSame(retention, format.parse(env(stream(1, 2).withRetention(retention))).get().getRetention());
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class ScopePathTest {
+
+    @Test
+    public void extend() {
+        final ScopePath root = ScopePath.root("");
+        final ScopePath child = root.extend("a").extend("b");
+        assertEquals("a.b", child.path);
+        assertEquals("b", child.shortName);
+        assertSame(child, root.extend("a").extend("b"));
+        assertSame(root, root.extend(""));
+        assertNotSame(child, ScopePath.root("").extend("a").extend("b"));
+    }
+
+    @Test
+    public void nonEmptyRoot() {
+        final ScopePath root = ScopePath.root("x.y");
+        assertEquals("y", root.shortName);
+        assertEquals("x.y.z", root.extend("z").path);
+        assertEquals("c", root.extend("b.c").shortName);
+    }
+
+    @Test
+    public void valuesShareNames() {
+        final Optional<ParseState> result = rep(seq("s", def("a", con(1)), def("b", con(0)))).parse(env(stream(1, 2, 3)));
+        assertTrue(result.isPresent());
+        final ImmutableList<ParseValue> values = getAllValues(result.get().order, "a");
+        assertEquals(3, values.size);
+        assertEquals("s.a", values.head.name);
+        assertSame(values.head.name, values.tail.head.name);
+        assertSame(values.head.name, values.tail.tail.head.name);
+    }
+
+}
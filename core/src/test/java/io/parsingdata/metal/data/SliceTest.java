@@ -24,6 +24,7 @@ import static java.math.BigInteger.ZERO;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static io.parsingdata.metal.Shorthand.con;
@@ -44,6 +45,7 @@ import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Assertions;
@@ -131,6 +133,27 @@ public class SliceTest {
         assertArrayEquals(new byte[] { 1, 2, 3 }, slice.getData(ONE, TEN));
     }
 
+    @Test
+    public void retrieveBufferFromSlice() {
+        final ByteBuffer buffer = Slice.createFromSource(new ConstantSource(new byte[]{0, 1, 2, 3}), ONE, TWO).get().getBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(0, buffer.position());
+        assertEquals(2, buffer.remaining());
+        assertEquals(1, buffer.get(0));
+        assertEquals(2, buffer.get(1));
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2}), buffer);
+    }
+
+    @Test
+    public void retrieveBufferFromByteStreamSlice() {
+        final ReadTrackingByteStream stream = new ReadTrackingByteStream(new InMemoryByteStream(toByteArray(1, 2, 3, 4)));
+        final ByteBuffer buffer = Slice.createFromSource(new ByteStreamSource(stream), ONE, TWO).get().getBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(ByteBuffer.wrap(new byte[]{2, 3}), buffer);
+        assertTrue(stream.containsAll(1, 2));
+        assertFalse(stream.containsAll(0));
+    }
+
     @Test
     public void sliceToString() {
         final ParseValue pv1 = new ParseValue("name", NONE, createFromBytes(new byte[]{1, 2}), enc());
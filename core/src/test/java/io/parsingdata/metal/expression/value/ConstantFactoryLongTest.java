@@ -51,8 +51,10 @@ public class ConstantFactoryLongTest {
     @MethodSource("arguments")
     public void checkLong(final long value) {
         assertEquals(value, ConstantFactory.createFromNumeric(value, signed()).asNumeric().longValueExact());
+        assertEquals(value, ConstantFactory.createFromNumeric(value, signed()).asLong());
         if (value >= 0) {
             assertEquals(value, ConstantFactory.createFromNumeric(value, enc()).asNumeric().longValueExact());
+            assertEquals(value, ConstantFactory.createFromNumeric(value, enc()).asLong());
         } else {
             assertEquals(0, calculateUnsignedValue(value).compareTo(ConstantFactory.createFromNumeric(value, enc()).asNumeric()));
         }
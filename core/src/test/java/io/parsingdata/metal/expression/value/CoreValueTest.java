@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.expression.value;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import static io.parsingdata.metal.Shorthand.toByteArray;
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EncodingFactory.le;
+import static io.parsingdata.metal.util.EncodingFactory.signed;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import io.parsingdata.metal.encoding.ByteOrder;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.encoding.Sign;
+
+public class CoreValueTest {
+
+    private static Value value(final Encoding encoding, final int... bytes) {
+        return new CoreValue(createFromBytes(toByteArray(bytes)), encoding);
+    }
+
+    @Test
+    public void asLongByteOrderAndSign() {
+        assertEquals(0x0102L, value(enc(), 0x01, 0x02).asLong());
+        assertEquals(0x0201L, value(le(), 0x01, 0x02).asLong());
+        assertEquals(-2L, value(signed(), 0xff, 0xfe).asLong());
+        assertEquals(-257L, value(new Encoding(Sign.SIGNED, US_ASCII, ByteOrder.LITTLE_ENDIAN), 0xff, 0xfe).asLong());
+        assertEquals(0xfffeL, value(enc(), 0xff, 0xfe).asLong());
+        assertEquals(Long.MIN_VALUE, value(signed(), 0x80, 0, 0, 0, 0, 0, 0, 0).asLong());
+    }
+
+    @Test
+    public void asLongMatchesAsNumeric() {
+        final Value value = value(le(), 0x12, 0x34, 0x56, 0x78, 0x9a, 0xbc, 0x0e);
+        assertEquals(value.asNumeric().longValueExact(), value.asLong());
+    }
+
+    @Test
+    public void asLongLargerThanEightBytes() {
+        assertEquals(0x0102L, value(enc(), 0, 0, 0, 0, 0, 0, 0, 0, 0x01, 0x02).asLong());
+        assertThrows(ArithmeticException.class, () -> value(enc(), 0x01, 0, 0, 0, 0, 0, 0, 0, 0).asLong());
+    }
+
+    @Test
+    public void asLongOutOfRange() {
+        assertThrows(ArithmeticException.class, () -> value(enc(), 0x80, 0, 0, 0, 0, 0, 0, 0).asLong());
+    }
+
+    @Test
+    public void asLongMemoizedWithoutAllocation() {
+        final Value value = value(enc(), 0x12, 0x34, 0x56);
+        final long expected = value.asLong();
+        final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        long sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sum += value.asLong();
+        }
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            sum += value.asLong();
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(200_000 * expected, sum);
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void asNumericMemoized() {
+        final Value value = value(enc(), 0x12, 0x34);
+        final BigInteger numeric = value.asNumeric();
+        assertEquals(BigInteger.valueOf(0x1234), numeric);
+        assertSame(numeric, value.asNumeric());
+    }
+
+}
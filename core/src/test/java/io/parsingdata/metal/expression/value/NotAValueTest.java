@@ -44,6 +44,12 @@ public class NotAValueTest {
         assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
     }
 
+    @Test
+    public void getValueBuffer() {
+        final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::valueBuffer);
+        assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
+    }
+
     @Test
     public void getLength() {
         final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::length);
@@ -56,6 +62,12 @@ public class NotAValueTest {
         assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
     }
 
+    @Test
+    public void asLong() {
+        final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::asLong);
+        assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
+    }
+
     @Test
     public void asString() {
         final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::asString);
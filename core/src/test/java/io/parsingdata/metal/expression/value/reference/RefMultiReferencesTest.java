@@ -75,6 +75,12 @@ class RefMultiReferencesTest {
         assertLists(expected, ref.eval(parseState, enc()));
     }
 
+    @ParameterizedTest
+    @MethodSource("multiNameRef")
+    public void multiNameRefWithoutCache(final ValueExpression ref, final String expected) {
+        assertLists(expected, ref.eval(parseState.withOrder(parseState.order), enc()));
+    }
+
 
     public static Stream<Arguments> multiDefinitionRef() {
         return Stream.of(
@@ -99,6 +105,12 @@ class RefMultiReferencesTest {
         assertLists(expected, ref.eval(parseState, enc()));
     }
 
+    @ParameterizedTest
+    @MethodSource("multiDefinitionRef")
+    public void multiDefinitionRefWithoutCache(final ValueExpression ref, final String expected) {
+        assertLists(expected, ref.eval(parseState.withOrder(parseState.order), enc()));
+    }
+
     private void assertLists(final String expected, final ImmutableList<Value> result) {
         assertEquals(expected.length(), result.size);
         ImmutableList<Value> tail = reverse(result);
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import static io.parsingdata.metal.Shorthand.and;
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.gtNum;
+import static io.parsingdata.metal.Shorthand.not;
+import static io.parsingdata.metal.Shorthand.or;
+import static io.parsingdata.metal.Shorthand.pcho;
+import static io.parsingdata.metal.Shorthand.pre;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
+
+public class ChoTest {
+
+    private static final Token MARKED = seq(def("marker", con(1), eq(con(0xff))), def("id", con(1), eq(con(0xda))), def("data", con(1)));
+    private static final Token SIZED = seq(def("marker", con(1), eq(con(0xff))), def("id", con(1)), def("data", con(1)));
+    private static final Token ANY = def("any", con(3));
+    private static final Token CHOICE = rep(cho(MARKED, SIZED, ANY));
+
+    @Test
+    public void guardOfSeq() {
+        final PrefixGuard guard = PrefixGuard.of(MARKED);
+        assertThat(guard.length(), is(3));
+        assertThat(guard.matches(bytes(0xff, 0xda, 0x00)), is(true));
+        assertThat(guard.matches(bytes(0xff, 0xd8, 0x00)), is(false));
+        assertThat(guard.matches(bytes(0xfe, 0xda, 0x00)), is(false));
+        assertThat(guard.matches(bytes(0xff, 0xda)), is(false));
+    }
+
+    @Test
+    public void guardOfPredicates() {
+        final PrefixGuard notGuard = PrefixGuard.of(def("value", con(1), not(eq(con(0xff)))));
+        assertThat(notGuard.matches(bytes(0x00)), is(true));
+        assertThat(notGuard.matches(bytes(0xff)), is(false));
+        final PrefixGuard orGuard = PrefixGuard.of(def("value", con(2), or(eq(con(0xff, 0x00)), eq(con(0x01, 0x02)))));
+        assertThat(orGuard.matches(bytes(0xff, 0x00)), is(true));
+        assertThat(orGuard.matches(bytes(0x01, 0x02)), is(true));
+        assertThat(orGuard.matches(bytes(0x02, 0x00)), is(false));
+        final PrefixGuard andGuard = PrefixGuard.of(def("value", con(1), and(eq(con(0x01)), gtNum(con(0)))));
+        assertThat(andGuard.matches(bytes(0x01)), is(true));
+        assertThat(andGuard.matches(bytes(0x02)), is(false));
+    }
+
+    @Test
+    public void unguardedTokens() {
+        assertThat(PrefixGuard.of(def("value", con(1), gtNum(con(0)))).matches(bytes(0x00)), is(true));
+        assertThat(PrefixGuard.of(pre(def("value", con(1), eq(con(1))), eq(con(1)))).length(), is(0));
+        assertThat(PrefixGuard.of(rep(def("value", con(1), eq(con(1))))).length(), is(0));
+        assertThat(PrefixGuard.of(seq(rep(def("a", con(1))), def("b", con(1), eq(con(1))))).length(), is(0));
+        assertThat(PrefixGuard.of(cho(MARKED, ANY)).matches(bytes(0x00, 0x00, 0x00)), is(true));
+    }
+
+    @Test
+    public void dispatchMatchesOrderedChoice() {
+        final int[] data = { 0xff, 0xda, 0x01, 0xff, 0xd8, 0x02, 0x00, 0xda, 0x03, 0xff, 0xda };
+        final Optional<ParseState> dispatched = CHOICE.parse(env(stream(data)));
+        final Optional<ParseState> ordered = CHOICE.parse(env(stream(data), Callbacks.create().add(new NoopCallback()), enc()));
+        assertThat(dispatched.isPresent(), is(true));
+        assertThat(dispatched.get().order, is(ordered.get().order));
+        assertThat(dispatched.get().offset, is(ordered.get().offset));
+        assertThat(dispatched.get().offset.intValueExact(), is(9));
+    }
+
+    @Test
+    public void parallelMatchesOrderedChoice() {
+        final int[] data = { 0xff, 0xda, 0x01, 0xff, 0xd8, 0x02, 0x00, 0xda, 0x03, 0xff, 0xda };
+        final Optional<ParseState> ordered = CHOICE.parse(env(stream(data)));
+        final Token parallelChoice = rep(pcho(MARKED, SIZED, ANY));
+        assertSameValues(ordered, parallelChoice.parse(env(stream(data))));
+        assertSameValues(ordered, parallelChoice.parse(env(stream(data), Callbacks.create().add(new NoopCallback()), enc())));
+    }
+
+    @Test
+    public void parallelFailure() {
+        assertThat(pcho(MARKED, SIZED).parse(env(stream(0xfe, 0xda, 0x01))).isPresent(), is(false));
+        assertThat(pcho(MARKED, SIZED).parse(env(stream(0xff, 0xda))).isPresent(), is(false));
+    }
+
+    @Test
+    public void parallelIsPartOfEquality() {
+        assertThat(pcho(MARKED, ANY).equals(cho(MARKED, ANY)), is(false));
+        assertThat(pcho(MARKED, ANY).toString(), is("ParCho(>" + MARKED + ">" + ANY + ")"));
+    }
+
+    @Test
+    public void cancelledParseStops() {
+        final Environment cancellable = env(stream(1, 2, 3)).cancellable();
+        final Environment derived = cancellable.extendScope("scope").cancellable();
+        cancellable.cancel();
+        assertThat(derived.isCancelled(), is(true));
+        assertThrows(CancellationException.class, () -> ANY.parse(cancellable));
+        assertThrows(CancellationException.class, () -> ANY.parse(derived));
+        assertThat(ANY.parse(env(stream(1, 2, 3))).isPresent(), is(true));
+    }
+
+    @Test
+    @Timeout(value=10)
+    public void parallelStopsRunningAlternatives() throws InterruptedException, ExecutionException {
+        final AtomicLong iterations = new AtomicLong();
+        final Token endless = rep(new Token("endless", null) {
+            @Override protected Optional<ParseState> parseImpl(final Environment environment) {
+                iterations.incrementAndGet();
+                return Optional.of(environment.parseState);
+            }
+        });
+        final Token waiting = new Token("waiting", null) {
+            @Override protected Optional<ParseState> parseImpl(final Environment environment) {
+                final long end = System.nanoTime() + 2_000_000_000L;
+                while (iterations.get() == 0 && System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                return Optional.of(environment.parseState);
+            }
+        };
+        // A pool of its own, so that the alternatives run concurrently regardless of the number of processors.
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertThat(pool.submit(() -> pcho(waiting, endless).parse(env(stream(0xff)))).get().isPresent(), is(true));
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(iterations.get() > 0, is(true));
+        Thread.sleep(100);
+        final long stopped = iterations.get();
+        Thread.sleep(100);
+        assertThat(iterations.get(), is(stopped));
+    }
+
+    private static void assertSameValues(final Optional<ParseState> expected, final Optional<ParseState> actual) {
+        assertThat(actual.isPresent(), is(true));
+        assertThat(actual.get().offset, is(expected.get().offset));
+        for (final String name : new String[] { "marker", "id", "data", "any" }) {
+            assertThat(getAllValues(actual.get().order, name), is(getAllValues(expected.get().order, name)));
+        }
+    }
+
+    private static byte[] bytes(final int... values) {
+        final byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static class NoopCallback implements Callback {
+
+        @Override
+        public void handleSuccess(final Token token, final ParseState before, final ParseState after) {}
+
+        @Override
+        public void handleFailure(final Token token, final ParseState before) {}
+
+    }
+
+}
@@ -28,6 +28,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static io.parsingdata.metal.Shorthand.CURRENT_OFFSET;
 import static io.parsingdata.metal.Shorthand.EMPTY;
+import static io.parsingdata.metal.Shorthand.and;
+import static io.parsingdata.metal.Shorthand.bytes;
 import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
 import static io.parsingdata.metal.Shorthand.eq;
@@ -40,6 +42,7 @@ import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.sub;
 import static io.parsingdata.metal.Shorthand.until;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
 import static io.parsingdata.metal.data.selection.ByName.getAllValues;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static io.parsingdata.metal.util.EncodingFactory.signed;
@@ -56,6 +59,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import io.parsingdata.metal.data.ByteStream;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseState;
@@ -65,6 +69,8 @@ import io.parsingdata.metal.data.callback.Callbacks;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.Expression;
 import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.util.InMemoryByteStream;
+import io.parsingdata.metal.util.ReadTrackingByteStream;
 
 class DefUntilTest {
 
@@ -223,6 +229,55 @@ class DefUntilTest {
         );
     }
 
+    @Test
+    void scanMatchesStepwiseParse() {
+        final byte[] data = new byte[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 7 + 1);
+        }
+        data[201] = 0;
+        data[250] = 0;
+        assertScanMatchesStepwiseParse(until("value", def("terminator", con(1), eq(con(0)))), data, 202);
+        assertScanMatchesStepwiseParse(until("value", con(0), con(2), def("terminator", con(1), eq(con(0)))), data, 251);
+        assertScanMatchesStepwiseParse(until("value", con(0), con(1), con(100), def("terminator", con(1), eq(con(0)))), data, -1);
+        assertScanMatchesStepwiseParse(until("value", def("terminator", con(2), eq(con(0, 0)))), data, -1);
+    }
+
+    @Test
+    void scanLastByteOfValue() {
+        final Token terminator = post(EMPTY, eq(and(last(bytes(last(ref("varInt")))), con(128)), con(0)));
+        final PrefixGuard guard = PrefixGuard.ofTerminator("varInt", terminator);
+        assertEquals(1, guard.length());
+        assertEquals(-1, guard.start);
+        final byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) 0x81;
+        }
+        data[90] = 0x01;
+        assertScanMatchesStepwiseParse(until("varInt", con(1), terminator), data, 91);
+    }
+
+    @Test
+    void scanStopsAtMaxSize() {
+        final ReadTrackingByteStream input = new ReadTrackingByteStream(new InMemoryByteStream(new byte[1024]));
+        final Token token = until("value", con(0), con(1), con(10), def("terminator", con(1), eq(con(1))));
+        assertFalse(token.parse(env(createFromByteStream(input))).isPresent());
+        assertTrue(input.containsAll(0, 10));
+        assertTrue(input.containsNone(11, 63, 64, 1023));
+    }
+
+    private static void assertScanMatchesStepwiseParse(final Token token, final byte[] data, final int offset) {
+        final ByteStream input = new InMemoryByteStream(data);
+        final Optional<ParseState> scanned = token.parse(env(createFromByteStream(input)));
+        final Optional<ParseState> stepwise = token.parse(new Environment(createFromByteStream(input), Callbacks.create().add(genericCallback(new ArrayList<>(), "terminator")), enc()));
+        assertEquals(offset >= 0, scanned.isPresent());
+        assertEquals(stepwise.isPresent(), scanned.isPresent());
+        if (offset >= 0) {
+            assertEquals(offset, scanned.get().offset.intValueExact());
+            assertEquals(stepwise.get().order, scanned.get().order);
+        }
+    }
+
     private static Callback genericCallback(final List<Integer> checkCount, final String tokenName) {
         return new Callback() {
             @Override
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.or;
+import static io.parsingdata.metal.Shorthand.prep;
+import static io.parsingdata.metal.Shorthand.prepn;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.repn;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class RepTest {
+
+    private static final Token FIXED = seq(def("marker", con(1), eq(con(0xaa))), def("data", con(3)));
+    private static final Token SHORT = seq(def("marker", con(1), eq(con(0xaa))), def("data", con(2)));
+    private static final Token LONG = seq(def("marker", con(1), eq(con(0xbb))), def("data", con(5)));
+    private static final Token VARIABLE = cho(SHORT, LONG);
+    private static final Token SYNC = def("sync", con(1), or(eq(con(0xaa)), eq(con(0xbb))));
+
+    @Test
+    public void fixedSizeRecords() {
+        final byte[] data = new byte[4000];
+        for (int i = 0; i < data.length; i += 4) {
+            data[i] = (byte) 0xaa;
+            data[i + 1] = (byte) i;
+        }
+        assertSameValues(1000, rep(FIXED), prep(FIXED), data);
+        assertSameValues(400, repn(FIXED, con(400)), prepn(FIXED, con(400)), data);
+        data[2400] = 0;
+        assertSameValues(600, rep(FIXED), prep(FIXED), data);
+    }
+
+    @Test
+    public void synchronizedRecords() {
+        // Data bytes may look like a marker, so some shards start at the wrong offset.
+        final byte[] data = records(new Random(42), 1000);
+        assertSameValues(1000, rep(VARIABLE), prep(VARIABLE, SYNC), data);
+    }
+
+    @Test
+    public void boundedRecords() {
+        final byte[] data = records(new Random(7), 1000);
+        assertSameValues(700, repn(VARIABLE, con(700)), prepn(VARIABLE, con(700), SYNC), data);
+        assertSameValues(1000, repn(VARIABLE, con(1000)), prepn(VARIABLE, con(1000), SYNC), data);
+        assertFalse(prepn(VARIABLE, con(1001), SYNC).parse(env(stream(data))).isPresent());
+    }
+
+    @Test
+    public void recordsWithoutFixedSizeParseSequentially() {
+        final byte[] data = records(new Random(3), 100);
+        assertSameValues(100, rep(VARIABLE), prep(VARIABLE), data);
+    }
+
+    @Test
+    public void parallelIsPartOfEquality() {
+        assertNotEquals(rep(FIXED), prep(FIXED));
+        assertNotEquals(prep(FIXED), prep(FIXED, SYNC));
+        assertNotEquals(repn(FIXED, con(1)), prepn(FIXED, con(1)));
+        assertEquals("ParRep(" + FIXED + "," + SYNC + ")", prep(FIXED, SYNC).toString());
+        assertEquals("ParRepN(" + FIXED + ",Const(0x01))", prepn(FIXED, con(1)).toString());
+    }
+
+    private static byte[] records(final Random random, final int count) {
+        final byte[] data = new byte[count * 6];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            final boolean isShort = random.nextBoolean();
+            data[offset] = (byte) (isShort ? 0xaa : 0xbb);
+            for (int j = 1; j < (isShort ? 3 : 6); j++) {
+                data[offset + j] = (byte) (random.nextBoolean() ? 0xaa : random.nextInt(256));
+            }
+            offset += isShort ? 3 : 6;
+        }
+        return data;
+    }
+
+    private static void assertSameValues(final int count, final Token sequential, final Token parallel, final byte[] data) {
+        final Optional<ParseState> expected = sequential.parse(env(stream(data)));
+        final Optional<ParseState> actual = parallel.parse(env(stream(data)));
+        assertTrue(actual.isPresent());
+        assertEquals(expected.get().offset, actual.get().offset);
+        assertEquals(count, getAllValues(actual.get().order, "marker").size);
+        assertEquals(getAllValues(expected.get().order, "marker"), getAllValues(actual.get().order, "marker"));
+        assertEquals(getAllValues(expected.get().order, "data"), getAllValues(actual.get().order, "data"));
+    }
+
+    private static ParseState stream(final byte[] data) {
+        return createFromByteStream(new InMemoryByteStream(data));
+    }
+
+}
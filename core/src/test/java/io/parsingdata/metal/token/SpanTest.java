@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.gtNum;
+import static io.parsingdata.metal.Shorthand.not;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.span;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class SpanTest {
+
+    @Test
+    public void longestRun() {
+        final Optional<ParseState> result = span("run", not(eq(con(0xff)))).parse(env(stream(1, 2, 3, 0xff, 4)));
+        assertTrue(result.isPresent());
+        assertEquals(3, result.get().offset.intValueExact());
+        final ImmutableList<ParseValue> values = getAllValues(result.get().order, "run");
+        assertEquals(1, values.size);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, values.head.value());
+    }
+
+    @Test
+    public void runUntilEndOfInput() {
+        final byte[] data = new byte[100000];
+        data[0] = 1;
+        final Optional<ParseState> result = span("run", not(eq(con(0xff)))).parse(env(createFromByteStream(new InMemoryByteStream(data))));
+        assertTrue(result.isPresent());
+        assertEquals(data.length, result.get().offset.intValueExact());
+        assertArrayEquals(data, getAllValues(result.get().order, "run").head.value());
+    }
+
+    @Test
+    public void evaluatedPredicate() {
+        final Optional<ParseState> result = span("run", gtNum(con(1))).parse(env(stream(2, 3, 2, 1)));
+        assertTrue(result.isPresent());
+        assertArrayEquals(new byte[] { 2, 3, 2 }, getAllValues(result.get().order, "run").head.value());
+    }
+
+    @Test
+    public void emptyRunFails() {
+        assertFalse(span("run", gtNum(con(1))).parse(env(stream(1, 2))).isPresent());
+        assertFalse(span("run", gtNum(con(1))).parse(env(stream())).isPresent());
+    }
+
+    @Test
+    public void sameDataAsRepeatedDef() {
+        final int[] data = { 1, 2, 0xff, 0x00, 3, 0xff, 0xd0, 0xff, 0x00, 4, 5, 6 };
+        final Token escape = def("escape", con(2), eq(con(0xff, 0x00)));
+        final Optional<ParseState> spans = rep(cho(span("data", not(eq(con(0xff)))), escape, def("marker", con(2)))).parse(env(stream(data)));
+        final Optional<ParseState> defs = rep(cho(def("data", con(1), not(eq(con(0xff)))), escape, def("marker", con(2)))).parse(env(stream(data)));
+        assertEquals(defs.get().offset, spans.get().offset);
+        assertEquals(3, getAllValues(spans.get().order, "data").size);
+        assertEquals(6, getAllValues(defs.get().order, "data").size);
+        assertEquals(getAllValues(defs.get().order, "escape").size, getAllValues(spans.get().order, "escape").size);
+        assertEquals(getAllValues(defs.get().order, "marker").size, getAllValues(spans.get().order, "marker").size);
+    }
+
+    @Test
+    public void errorEmptyName() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> span("", not(eq(con(0)))));
+        assertEquals("Argument name may not be empty.", e.getMessage());
+    }
+
+}
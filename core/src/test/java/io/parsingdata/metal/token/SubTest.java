@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.psub;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.repn;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.data.selection.ByType.getReferences;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+import static io.parsingdata.metal.util.TokenDefinitions.any;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ParseState;
+
+public class SubTest {
+
+    private static final Token ENTRY = seq(def("size", con(1)), def("data", con(2)));
+
+    private static Token table(final Token entry, final boolean parallel) {
+        return seq(def("count", con(1)),
+                   repn(any("offset"), last(ref("count"))),
+                   parallel ? psub(entry, ref("offset")) : sub(entry, ref("offset")));
+    }
+
+    @Test
+    public void parallelSameAsSequential() {
+        final ParseState input = stream(4, 7, 5, 8, 7, 1, 2, 3, 4, 5, 6);
+        final Optional<ParseState> parallel = assertSameValues(ENTRY, input);
+        assertEquals(3, getAllValues(parallel.get().order, "size").size);
+        // The repeated offset 7 is added as a cycle reference.
+        assertEquals(1, getReferences(parallel.get().order).size);
+    }
+
+    @Test
+    public void parallelFailure() {
+        final Token entry = seq(def("size", con(1), eq(con(1))), def("data", con(2)));
+        assertFalse(table(entry, true).parse(env(stream(2, 3, 6, 1, 2, 3, 4, 5, 6))).isPresent());
+        assertFalse(table(ENTRY, true).parse(env(stream(2, 3, 9, 1, 2, 3, 4, 5, 6))).isPresent());
+    }
+
+    @Test
+    public void parallelWithReferencesParsesSequentially() {
+        final Token entry = seq(def("size", con(1)), def("data", last(ref("size"))));
+        assertSameValues(entry, stream(2, 3, 6, 1, 2, 3, 2, 5, 6));
+    }
+
+    private static Optional<ParseState> assertSameValues(final Token entry, final ParseState input) {
+        final Optional<ParseState> sequential = table(entry, false).parse(env(input));
+        final Optional<ParseState> parallel = table(entry, true).parse(env(input));
+        assertTrue(sequential.isPresent());
+        assertEquals(sequential.get().offset, parallel.get().offset);
+        assertEquals(getAllValues(sequential.get().order, "size"), getAllValues(parallel.get().order, "size"));
+        assertEquals(getAllValues(sequential.get().order, "data"), getAllValues(parallel.get().order, "data"));
+        assertEquals(getReferences(sequential.get().order), getReferences(parallel.get().order));
+        return parallel;
+    }
+
+    @Test
+    public void parallelIsPartOfEquality() {
+        assertNotEquals(sub(ENTRY, ref("offset")), psub(ENTRY, ref("offset")));
+        assertEquals("ParSub(" + ENTRY + ",NameRef(>offset))", psub(ENTRY, ref("offset")).toString());
+    }
+
+}
@@ -41,6 +41,7 @@ import static io.parsingdata.metal.Shorthand.sub;
 import static io.parsingdata.metal.Shorthand.tie;
 import static io.parsingdata.metal.Util.inflate;
 import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.Selection.reverse;
 import static io.parsingdata.metal.data.selection.ByName.getAllValues;
 import static io.parsingdata.metal.data.selection.ByType.getReferences;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
@@ -52,6 +53,7 @@ import java.util.Optional;
 import java.util.zip.Deflater;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
 import io.parsingdata.metal.Shorthand;
 import io.parsingdata.metal.data.ImmutableList;
@@ -244,4 +246,23 @@ public class TieTest {
         assertFalse(tie(strictSeq, con(1, 2, 4)).parse(env(stream())).isPresent());
     }
 
+    @Test
+    @Timeout(value=5)
+    public void tieOnManyValues() {
+        final int count = 20_000;
+        final byte[] data = new byte[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = (byte) i;
+        }
+        final Token token = seq(rep(any("a")), tie(any("b"), ref("a")));
+        final Optional<ParseState> result = token.parse(env(createFromByteStream(new InMemoryByteStream(data))));
+        assertTrue(result.isPresent());
+        ImmutableList<ParseValue> tied = getAllValues(result.get().order, "b");
+        ImmutableList<ParseValue> parsed = reverse(getAllValues(result.get().order, "a"));
+        assertEquals(count, tied.size);
+        for (; !tied.isEmpty(); tied = tied.tail, parsed = parsed.tail) {
+            assertEquals(parsed.head.asNumeric(), tied.head.asNumeric());
+        }
+    }
+
 }
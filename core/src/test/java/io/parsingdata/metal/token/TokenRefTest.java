@@ -17,6 +17,7 @@
 
 package io.parsingdata.metal.token;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -24,14 +25,23 @@ import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
 import static io.parsingdata.metal.Shorthand.eq;
 import static io.parsingdata.metal.Shorthand.opt;
+import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.sub;
 import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
 import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 import static io.parsingdata.metal.util.TokenDefinitions.any;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.util.InMemoryByteStream;
 
 public class TokenRefTest {
 
@@ -58,6 +68,17 @@ public class TokenRefTest {
         assertFalse(createNamedTokens("in", "in", "in").parse(env(stream(21, 21, 42))).isPresent());
     }
 
+    @Test
+    @Timeout(value=5)
+    public void manyLookups() {
+        // Each iteration looks up a name that does not occur, so every lookup covers the complete parse state.
+        final int count = 20_000;
+        final Token token = rep(seq("item", any("value"), opt(token("missing"))));
+        final Optional<ParseState> result = token.parse(env(createFromByteStream(new InMemoryByteStream(new byte[count]))));
+        assertTrue(result.isPresent());
+        assertEquals(count, getAllValues(result.get().order, "value").size);
+    }
+
     private Token createNamedTokens(String firstSeq, String secondSeq, String refName) {
         return
             seq(firstSeq,
@@ -20,6 +20,7 @@ package io.parsingdata.metal.util;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
 
 import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.MemoTable;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.callback.Callbacks;
 import io.parsingdata.metal.encoding.Encoding;
@@ -34,6 +35,10 @@ public class EnvironmentFactory {
         return new Environment(parseState, callbacks, encoding);
     }
 
+    public static Environment env(final ParseState parseState, final MemoTable memoTable, final Encoding encoding) {
+        return new Environment(parseState, memoTable, encoding);
+    }
+
     public static Environment env(final ParseState parseState, final Encoding encoding) {
         return new Environment(parseState, encoding);
     }
@@ -46,6 +46,17 @@ public class InMemoryByteStream implements ByteStream {
         return offset.add(length).compareTo(BigInteger.valueOf(data.length)) <= 0;
     }
 
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) { throw new IOException("Data to read is not available."); }
+        return Arrays.copyOfRange(data, Math.toIntExact(offset), Math.toIntExact(offset) + length);
+    }
+
+    @Override
+    public boolean isAvailable(final long offset, final long length) {
+        return offset >= 0 && length >= 0 && length <= data.length - offset;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + data.length + ")";
@@ -30,13 +30,14 @@ import static io.parsingdata.metal.Shorthand.or;
 import static io.parsingdata.metal.Shorthand.ref;
 import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.span;
 import static io.parsingdata.metal.Shorthand.sub;
 
 import io.parsingdata.metal.token.Token;
 
 /*
- * Since nearly every byte of the scan data is individually matched, this
- * approach will lead to stack overflow on files of realistic size.
+ * The entropy-coded scan data is parsed as runs of bytes other than 0xff,
+ * each producing a single value, separated by the escape sequences.
  */
 public final class JPEG {
 
@@ -70,7 +71,7 @@ public final class JPEG {
                 def(IDENTIFIER, con(1), eq(con(0xda))),
                 def(LENGTH, con(2)),
                 def(PAYLOAD, last(sub(last(ref(LENGTH)), con(2)))),
-                rep(cho(def("scandata", con(1), not(eq(con(0xff)))),
+                rep(cho(span("scandata", not(eq(con(0xff)))),
                         def("escape", con(2), or(eq(con(0xff00)), and(gtNum(con(0xffcf)), ltNum(con(0xffd8))))))));
 
     public static final Token FORMAT =